@@ -0,0 +1,131 @@
+package com.iotp.hsvcolorpicker
+
+import android.graphics.Bitmap
+import android.os.Build
+import android.os.Bundle
+import android.os.Debug
+import android.os.SystemClock
+import android.util.Log
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.iotp.hsvcolorpicker.engine.GradientRasterizer
+import org.junit.Assert.assertEquals
+import org.junit.Assume.assumeTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Measures the memory and the upload time of the [BitmapStrategy] configs for a sat/val panel.
+ *
+ * The upload time covers the dithering for RGB_565 and the copy to graphics memory for HARDWARE,
+ * not the gradient computation which is the same for all of them. The memory is what the process
+ * actually gains while [KEPT] panels are alive, split between the Java heap, the native heap
+ * (bitmap pixels live there from API 26) and the graphics memory reported by
+ * [Debug.MemoryInfo] ("summary.graphics"), where HARDWARE bitmaps end up.
+ *
+ * Results are logged with the "BitmapStrategyBenchmark" tag and reported as instrumentation
+ * status, run with `adb shell am instrument -r -w` or read them in the test report.
+ */
+@RunWith(AndroidJUnit4::class)
+class BitmapStrategyBenchmark {
+
+    private val pixels = IntArray(SIZE * SIZE)
+
+    @Test
+    fun argb8888() {
+        val result = run(Bitmap.Config.ARGB_8888)
+        report("argb8888", result)
+        assertEquals(SIZE * SIZE * 4, result.allocationBytes)
+    }
+
+    @Test
+    fun rgb565() {
+        val result = run(Bitmap.Config.RGB_565)
+        report("rgb565", result)
+        assertEquals(SIZE * SIZE * 2, result.allocationBytes)
+    }
+
+    @Test
+    fun hardware() {
+        assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.O)
+        val result = run(Bitmap.Config.HARDWARE)
+        report("hardware", result)
+    }
+
+    private fun run(config: Bitmap.Config): Result {
+        // Upload time, one bitmap alive at a time.
+        var uploadNanos = 0L
+        var bitmap: Bitmap? = null
+        for (i in 0 until UPLOADS) {
+            // Dithering works in place, start every upload from the same gradient.
+            GradientRasterizer.fillSatVal(pixels, SIZE, SIZE, i * 360f / UPLOADS)
+            bitmap?.recycle()
+            val start = SystemClock.elapsedRealtimeNanos()
+            bitmap = BitmapStrategy.createBitmap(pixels, SIZE, SIZE, config)
+            uploadNanos += SystemClock.elapsedRealtimeNanos() - start
+        }
+        assertEquals(config, bitmap!!.config)
+        val allocationBytes = bitmap.allocationByteCount
+        bitmap.recycle()
+
+        // Memory, several panels kept alive so the deltas stand out of the noise.
+        GradientRasterizer.fillSatVal(pixels, SIZE, SIZE, 0f)
+        val before = Memory.sample()
+        val kept = Array(KEPT) { BitmapStrategy.createBitmap(pixels.copyOf(), SIZE, SIZE, config) }
+        val after = Memory.sample()
+        kept.forEach { it.recycle() }
+
+        return Result(
+            uploadNanos / UPLOADS,
+            allocationBytes,
+            (after.javaBytes - before.javaBytes) / KEPT,
+            (after.nativeBytes - before.nativeBytes) / KEPT,
+            (after.graphicsBytes - before.graphicsBytes) / KEPT
+        )
+    }
+
+    private fun report(config: String, result: Result) {
+        val line = "$config: upload ${result.uploadNanos / 1000}us, " +
+                "java ${result.javaBytes / 1024}KB, native ${result.nativeBytes / 1024}KB, " +
+                "graphics ${result.graphicsBytes / 1024}KB per ${SIZE}x$SIZE panel"
+        Log.i(TAG, line)
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, Bundle().apply {
+            putString(TAG, line)
+        })
+    }
+
+    private class Result(
+        val uploadNanos: Long,
+        val allocationBytes: Int,
+        val javaBytes: Long,
+        val nativeBytes: Long,
+        val graphicsBytes: Long
+    )
+
+    private class Memory(val javaBytes: Long, val nativeBytes: Long, val graphicsBytes: Long) {
+        companion object {
+            fun sample(): Memory {
+                // Settle the heaps so the deltas are the bitmaps, not pending garbage.
+                Runtime.getRuntime().gc()
+                System.runFinalization()
+                Runtime.getRuntime().gc()
+                val runtime = Runtime.getRuntime()
+                val info = Debug.MemoryInfo()
+                Debug.getMemoryInfo(info)
+                val graphicsKb = info.getMemoryStat("summary.graphics")?.toLongOrNull() ?: 0L
+                return Memory(
+                    runtime.totalMemory() - runtime.freeMemory(),
+                    Debug.getNativeHeapAllocatedSize(),
+                    graphicsKb * 1024
+                )
+            }
+        }
+    }
+
+    companion object {
+        private const val TAG = "BitmapStrategyBenchmark"
+        private const val SIZE = 1080
+        private const val UPLOADS = 20
+        private const val KEPT = 8
+    }
+}
@@ -0,0 +1,161 @@
+package com.iotp.hsvcolorpicker
+
+import android.graphics.Bitmap
+import android.graphics.Canvas
+import android.os.Build
+import android.os.Debug
+import android.view.View
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.iotp.hsvcolorpicker.engine.HsvMath
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assume.assumeTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Steady state frames of the picker views must not allocate: the thumb moves,
+ * the gradients and their shaders are reused.
+ */
+@Suppress("DEPRECATION")
+@RunWith(AndroidJUnit4::class)
+class PickerDrawAllocationTest {
+
+    private val context = InstrumentationRegistry.getInstrumentation().targetContext
+    private lateinit var target: Bitmap
+    private lateinit var canvas: Canvas
+
+    @Before
+    fun setUp() {
+        target = Bitmap.createBitmap(WIDTH, WIDTH, Bitmap.Config.ARGB_8888)
+        canvas = Canvas(target)
+    }
+
+    @After
+    fun tearDown() {
+        target.recycle()
+    }
+
+    @Test
+    fun satView_bitmapMode() {
+        val satView = SatView(context)
+        satView.renderMode = SatView.RENDER_MODE_BITMAP
+        assertNoAllocations(layout(satView, WIDTH)) { i ->
+            satView.setColor(HsvMath.hsvToColor(120f, i / 100f, 1f - i / 100f), false)
+        }
+    }
+
+    @Test
+    fun satView_shaderMode() {
+        val satView = SatView(context)
+        satView.renderMode = SatView.RENDER_MODE_SHADER
+        assertNoAllocations(layout(satView, WIDTH)) { i ->
+            satView.setColor(HsvMath.hsvToColor(120f, i / 100f, 1f - i / 100f), false)
+        }
+    }
+
+    @Test
+    fun hueView() {
+        val hueView = HueView(context)
+        assertNoAllocations(layout(hueView, HEIGHT)) { i ->
+            hueView.setColor(HsvMath.hsvToColor(i * 3f, 1f, 1f), false)
+        }
+    }
+
+    @Test
+    fun alphaView() {
+        val alphaView = AlphaView(context)
+        alphaView.setAlphaChannelVisible(true)
+        assertNoAllocations(layout(alphaView, HEIGHT)) { i ->
+            alphaView.setColor(dragColor(i), false)
+        }
+    }
+
+    @Test
+    fun colorPickerView() {
+        val pickerView = ColorPickerView(context)
+        pickerView.setAlphaChannelVisible(true)
+        assertNoAllocations(layout(pickerView, WIDTH)) { i ->
+            pickerView.setColor(dragColor(i), false)
+        }
+    }
+
+    @Test
+    fun colorPickerView_circleWheelDrag() {
+        val pickerView = ColorPickerView(context)
+        pickerView.setAlphaChannelVisible(true)
+        pickerView.colorShape = ColorShape.CIRCLE
+        assertNoAllocations(layout(pickerView, WIDTH)) { i ->
+            pickerView.setColor(HsvMath.hsvToColor(i * 3.6f, i / 100f, 0.8f), false)
+        }
+    }
+
+    @Test
+    fun colorPickerView_circleValueDrag() {
+        // The value filter is only updated in place from API 29.
+        assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q)
+        val pickerView = ColorPickerView(context)
+        pickerView.setAlphaChannelVisible(true)
+        pickerView.colorShape = ColorShape.CIRCLE
+        assertNoAllocations(layout(pickerView, WIDTH)) { i ->
+            pickerView.setColor(dragColor(i), false)
+        }
+    }
+
+    @Test
+    fun colorPanelView() {
+        val panelView = ColorPanelView(context)
+        assertNoAllocations(layout(panelView, HEIGHT)) { i ->
+            panelView.color = HsvMath.hsvToColor(i * 2, 200f, 1f, 1f)
+        }
+    }
+
+    /** Hue, saturation, value and alpha all move, like a drag across the panels. */
+    private fun dragColor(i: Int): Int =
+        HsvMath.hsvToColor(255 - i * 2, i * 3.6f, i / 100f, 1f - i / 200f)
+
+    private fun layout(view: View, height: Int): View {
+        view.measure(
+            View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+            View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY)
+        )
+        view.layout(0, 0, WIDTH, height)
+        return view
+    }
+
+    /**
+     * Draw a first frame to build the gradients, then count the allocations of
+     * [FRAMES] frames where [update] changes the color.
+     */
+    private fun assertNoAllocations(view: View, update: (Int) -> Unit) {
+        update(0)
+        view.draw(canvas)
+
+        // Warm up the draw path, so class loading and lazy framework state are not counted.
+        for (i in 0 until FRAMES) {
+            update(i)
+            view.draw(canvas)
+        }
+
+        Debug.resetThreadAllocCount()
+        Debug.startAllocCounting()
+        for (i in 0 until FRAMES) {
+            update(FRAMES - i)
+            view.draw(canvas)
+        }
+        Debug.stopAllocCounting()
+
+        assertEquals(
+            "${view.javaClass.simpleName} allocated while drawing",
+            0, Debug.getThreadAllocCount()
+        )
+    }
+
+    companion object {
+        private const val WIDTH = 720
+        private const val HEIGHT = 48
+        private const val FRAMES = 100
+    }
+}
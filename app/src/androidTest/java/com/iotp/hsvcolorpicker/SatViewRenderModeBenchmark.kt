@@ -0,0 +1,94 @@
+package com.iotp.hsvcolorpicker
+
+import android.graphics.Bitmap
+import android.graphics.Canvas
+import android.os.SystemClock
+import android.util.Log
+import android.view.View
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.iotp.hsvcolorpicker.engine.HsvMath
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Compares the memory and the frame time of the SatView render modes.
+ *
+ * Frames are drawn on a software canvas, so the numbers include the cost of
+ * rasterizing the gradients on the cpu for both modes. Results are logged with the
+ * "SatViewBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4::class)
+class SatViewRenderModeBenchmark {
+
+    private val context = InstrumentationRegistry.getInstrumentation().targetContext
+
+    @Before
+    fun clearCache() {
+        GradientCache.getInstance().clear()
+    }
+
+    @Test
+    fun bitmapMode() {
+        val result = run(SatView.RENDER_MODE_BITMAP)
+        log("bitmap", result)
+    }
+
+    @Test
+    fun shaderMode() {
+        val result = run(SatView.RENDER_MODE_SHADER)
+        log("shader", result)
+        assertEquals(0, result.cacheBytes)
+    }
+
+    private fun run(renderMode: Int): Result {
+        val satView = SatView(context)
+        satView.renderMode = renderMode
+        satView.measure(
+            View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY),
+            View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY)
+        )
+        satView.layout(0, 0, SIZE, SIZE)
+
+        val target = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888)
+        val canvas = Canvas(target)
+
+        // Warm up, first panel and shaders.
+        satView.draw(canvas)
+
+        // Thumb only frames, the hue does not change.
+        var start = SystemClock.elapsedRealtimeNanos()
+        for (i in 0 until FRAMES) {
+            satView.draw(canvas)
+        }
+        val sameHueNanos = (SystemClock.elapsedRealtimeNanos() - start) / FRAMES
+
+        // Hue drag, every frame has a new hue.
+        start = SystemClock.elapsedRealtimeNanos()
+        for (i in 0 until FRAMES) {
+            satView.setColor(HsvMath.hsvToColor(i * 360f / FRAMES, 1f, 1f), false)
+            satView.draw(canvas)
+        }
+        val hueDragNanos = (SystemClock.elapsedRealtimeNanos() - start) / FRAMES
+
+        target.recycle()
+        return Result(sameHueNanos, hueDragNanos, GradientCache.getInstance().sizeBytes())
+    }
+
+    private fun log(mode: String, result: Result) {
+        Log.i(
+            TAG, "$mode: same hue ${result.sameHueNanos / 1000}us/frame, " +
+                    "hue drag ${result.hueDragNanos / 1000}us/frame, cached ${result.cacheBytes / 1024}KB"
+        )
+    }
+
+    private class Result(val sameHueNanos: Long, val hueDragNanos: Long, val cacheBytes: Int)
+
+    companion object {
+        private const val TAG = "SatViewBenchmark"
+        private const val SIZE = 1080
+        private const val FRAMES = 120
+    }
+}
@@ -0,0 +1,143 @@
+package com.iotp.hsvcolorpicker;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.drawable.Drawable;
+import android.view.View;
+
+import com.iotp.hsvcolorpicker.engine.HsvMath;
+import com.iotp.hsvcolorpicker.engine.PickerGeometry;
+import com.iotp.hsvcolorpicker.utils.DrawingUtils;
+
+/**
+ * Draws the alpha slider and maps touches on it, shared by {@link AlphaView} and {@link ColorPickerView}.
+ * <p>
+ * The checkerboard repeats a small shared tile, see {@link AlphaPatternDrawable}. The gradient is
+ * an ALPHA_8 ramp built once per size and tinted with the color of the paint, so a new color
+ * allocates nothing.
+ */
+final class AlphaPanel {
+
+    /**
+     * The width in pixels of the border
+     * surrounding the slider.
+     */
+    private final static int BORDER_WIDTH_PX = 1;
+    private final static int CELL_DP = 4;
+
+    private final PickerStats stats;
+    private final AlphaPatternDrawable patternDrawable;
+    private final RectF rect = new RectF();
+    private final RectF borderRect = new RectF();
+    private float round;
+    private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final int textOffsetPx;
+
+    /* One row going from transparent to opaque, stretched over the slider by the shader. */
+    private Bitmap ramp;
+    private BitmapShader shader;
+    private final Matrix shaderMatrix = new Matrix();
+
+    AlphaPanel(View host, PickerStats stats) {
+        this.stats = stats;
+        final Context context = host.getContext();
+        patternDrawable = new AlphaPatternDrawable(DrawingUtils.dpToPx(context, CELL_DP));
+        patternDrawable.setCallback(host);
+        textPaint.setColor(0xff1c1c1c);
+        textPaint.setTextSize(DrawingUtils.dpToPx(context, 14));
+        textPaint.setTextAlign(Paint.Align.CENTER);
+        textPaint.setFakeBoldText(true);
+        textOffsetPx = DrawingUtils.dpToPx(context, 4);
+    }
+
+    /**
+     * Set the bounds of the slider, in the coordinates of the host. The border is drawn around them.
+     *
+     * @param round radius of the rounded ends.
+     */
+    void setBounds(float left, float top, float right, float bottom, float round) {
+        rect.set(left, top, right, bottom);
+        borderRect.set(left - BORDER_WIDTH_PX, top - BORDER_WIDTH_PX, right + BORDER_WIDTH_PX,
+                bottom + BORDER_WIDTH_PX);
+        this.round = round;
+        patternDrawable.setRoundDx((int) round);
+        patternDrawable.setBounds(Math.round(left), Math.round(top), Math.round(right), Math.round(bottom));
+        final int width = (int) rect.width();
+        if (width <= 0) {
+            return;
+        }
+        if (ramp == null || ramp.getWidth() != width) {
+            final long rebuildStart = stats.beginRebuild();
+            ramp = createRamp(width);
+            shader = new BitmapShader(ramp, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+            paint.setShader(shader);
+            stats.endRebuild(rebuildStart);
+        }
+        shaderMatrix.setTranslate(rect.left, rect.top);
+        shader.setLocalMatrix(shaderMatrix);
+    }
+
+    RectF getBounds() {
+        return rect;
+    }
+
+    /**
+     * Draw the border, the checkerboard, the gradient of the color and the text, everything but the thumb.
+     *
+     * @param text drawn over the slider, may be null.
+     */
+    void draw(Canvas canvas, float hue, float sat, float val, String text, Paint borderPaint) {
+        if (BORDER_WIDTH_PX > 0) {
+            canvas.drawRoundRect(borderRect, round, round, borderPaint);
+        }
+        patternDrawable.draw(canvas);
+
+        if (shader != null) {
+            // An ALPHA_8 shader takes the color of the paint.
+            paint.setColor(HsvMath.hsvToColor(hue, sat, val));
+            canvas.drawRoundRect(rect, round, round, paint);
+        }
+
+        if (text != null && !text.equals("")) {
+            canvas.drawText(text, rect.centerX(), rect.centerY() + textOffsetPx, textPaint);
+        }
+    }
+
+    /**
+     * @return the checkerboard, for the verifyDrawable of the host.
+     */
+    Drawable getPatternDrawable() {
+        return patternDrawable;
+    }
+
+    boolean contains(float x, float y) {
+        return rect.contains(x, y);
+    }
+
+    int alphaAt(float x) {
+        return PickerGeometry.xToAlpha(x, rect.left, rect.width());
+    }
+
+    float alphaToX(int alpha) {
+        return PickerGeometry.alphaToX(alpha, rect.left, rect.width());
+    }
+
+    private static Bitmap createRamp(int width) {
+        final Bitmap ramp = Bitmap.createBitmap(width, 1, Bitmap.Config.ALPHA_8);
+        final int[] pixels = new int[width];
+        final float step = 255f / Math.max(width - 1, 1);
+        for (int x = 0; x < width; x++) {
+            // Only the alpha of the pixels is kept in ALPHA_8.
+            pixels[x] = Math.round(x * step) << 24;
+        }
+        ramp.setPixels(pixels, 0, width, 0, 0, width, 1);
+        return ramp;
+    }
+}
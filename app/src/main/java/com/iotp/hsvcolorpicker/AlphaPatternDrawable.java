@@ -1,45 +1,53 @@
 package com.iotp.hsvcolorpicker;
 
 import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
 import android.graphics.Canvas;
 import android.graphics.ColorFilter;
+import android.graphics.Matrix;
 import android.graphics.Paint;
-import android.graphics.PorterDuff;
-import android.graphics.PorterDuffXfermode;
 import android.graphics.Rect;
 import android.graphics.RectF;
+import android.graphics.Shader;
 import android.graphics.drawable.Drawable;
 
+/**
+ * Checkerboard drawn behind translucent colors.
+ * <p>
+ * The pattern is a single tile of 2x2 cells repeated by a BitmapShader, clipped to the rounded
+ * bounds by the paint. The tile is shared through the {@link GradientCache} by every drawable with
+ * the same cell size, so the memory used does not depend on the size of the slider and nothing
+ * is rebuilt when the bounds change.
+ */
 public class AlphaPatternDrawable extends Drawable {
 
-    private int rectangleSize = 10;
-
-    private final Paint paint = new Paint();
-    private final Paint paintWhite = new Paint();
-    private final Paint paintGray = new Paint();
+    private static final int COLOR_LIGHT = 0xFFFFFFFF;
+    private static final int COLOR_DARK = 0xFFCBCBCB;
 
-    private int numRectanglesHorizontal;
-    private int numRectanglesVertical;
+    private int rectangleSize = 10;
 
-    /**
-     * Bitmap in which the pattern will be cached.
-     * This is so the pattern will not have to be recreated each time draw() gets called.
-     * Because recreating the pattern i rather expensive. I will only be recreated if the size changes.
-     */
-    private Bitmap bitmap;
+    private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF boundsF = new RectF();
+    private final Matrix shaderMatrix = new Matrix();
     private int roundDx;
+    private final PickerStats stats = new PickerStats("AlphaPatternDrawable");
 
     public AlphaPatternDrawable(int rectangleSize) {
         this.rectangleSize = rectangleSize;
-        paintWhite.setColor(0xFFFFFFFF);
-        paintGray.setColor(0xFFCBCBCB);
     }
 
     @Override
     public void draw(Canvas canvas) {
-        if (bitmap != null && !bitmap.isRecycled()) {
-            canvas.drawBitmap(bitmap, null, getBounds(), paint);
+        stats.beginDraw();
+        if (paint.getShader() == null) {
+            paint.setShader(createShader());
+        }
+        if (roundDx > 0) {
+            canvas.drawRoundRect(boundsF, roundDx, roundDx, paint);
+        } else {
+            canvas.drawRect(boundsF, paint);
         }
+        stats.endDraw();
     }
 
     @Override
@@ -64,44 +72,54 @@ public class AlphaPatternDrawable extends Drawable {
     @Override
     protected void onBoundsChange(Rect bounds) {
         super.onBoundsChange(bounds);
-        int height = bounds.height();
-        int width = bounds.width();
-        numRectanglesHorizontal = (int) Math.ceil((width / rectangleSize));
-        numRectanglesVertical = (int) Math.ceil(height / rectangleSize);
-        generatePatternBitmap();
+        boundsF.set(bounds);
+        // The first cell is always the light one, at the top left corner of the bounds.
+        shaderMatrix.setTranslate(bounds.left, bounds.top);
+        final Shader shader = paint.getShader();
+        if (shader != null) {
+            shader.setLocalMatrix(shaderMatrix);
+        }
     }
 
     /**
-     * This will generate a bitmap with the pattern as big as the rectangle we were allow to draw on.
-     * We do this to chache the bitmap so we don't need to recreate it each time draw() is called since it takes a few
-     * milliseconds
+     * @return the draw and rebuild counts of this drawable, recorded while
+     * {@link PickerStats#setEnabled(boolean)} is on.
      */
-    private void generatePatternBitmap() {
-        if (getBounds().width() <= 0 || getBounds().height() <= 0) {
-            return;
-        }
+    public PickerStats getStats() {
+        return stats;
+    }
 
-        bitmap = Bitmap.createBitmap(getBounds().width(), getBounds().height(), Bitmap.Config.ARGB_8888);
-        Canvas canvas = new Canvas(bitmap);
-        Rect r = new Rect();
-        final Rect rect = new Rect(0, 0, bitmap.getWidth(), bitmap.getHeight());
-        final RectF rectF = new RectF(rect);
-        paint.setAntiAlias(true);
-        canvas.drawRoundRect(rectF, roundDx, roundDx, paint);
-        paintWhite.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC_IN));
-        paintGray.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC_IN));
-        boolean verticalStartWhite = true;
-        for (int i = 0; i <= numRectanglesVertical; i++) {
-            boolean isWhite = verticalStartWhite;
-            for (int j = 0; j <= numRectanglesHorizontal; j++) {
-                r.top = i * rectangleSize;
-                r.left = j * rectangleSize;
-                r.bottom = r.top + rectangleSize;
-                r.right = r.left + rectangleSize;
-                canvas.drawRect(r, isWhite ? paintWhite : paintGray);
-                isWhite = !isWhite;
-            }
-            verticalStartWhite = !verticalStartWhite;
+    private Shader createShader() {
+        final int tileSize = rectangleSize * 2;
+        final GradientCache.Key key = new GradientCache.Key(GradientCache.KIND_ALPHA_PATTERN, tileSize, tileSize,
+                Bitmap.Config.ARGB_8888, 0, 0f, rectangleSize);
+        Bitmap tile = GradientCache.getInstance().get(key);
+        if (tile == null) {
+            stats.countCacheMiss();
+            final long rebuildStart = stats.beginRebuild();
+            tile = createTileBitmap(rectangleSize);
+            stats.endRebuild(rebuildStart);
+            GradientCache.getInstance().put(key, tile);
+        } else {
+            stats.countCacheHit();
         }
+        final Shader shader = new BitmapShader(tile, Shader.TileMode.REPEAT, Shader.TileMode.REPEAT);
+        shader.setLocalMatrix(shaderMatrix);
+        return shader;
+    }
+
+    /**
+     * Light cells on the top left and bottom right, dark cells on the other diagonal.
+     */
+    private static Bitmap createTileBitmap(int rectangleSize) {
+        final int tileSize = rectangleSize * 2;
+        final Bitmap bitmap = Bitmap.createBitmap(tileSize, tileSize, Bitmap.Config.ARGB_8888);
+        bitmap.eraseColor(COLOR_LIGHT);
+        final Canvas canvas = new Canvas(bitmap);
+        final Paint paintDark = new Paint();
+        paintDark.setColor(COLOR_DARK);
+        canvas.drawRect(rectangleSize, 0, tileSize, rectangleSize, paintDark);
+        canvas.drawRect(0, rectangleSize, rectangleSize, tileSize, paintDark);
+        return bitmap;
     }
 }
@@ -4,11 +4,12 @@ import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.LinearGradient;
 import android.graphics.Paint;
 import android.graphics.Point;
+import android.graphics.Rect;
 import android.graphics.RectF;
-import android.graphics.Shader;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
 import android.os.Bundle;
 import android.os.Parcelable;
 import android.util.AttributeSet;
@@ -17,7 +18,13 @@ import android.util.TypedValue;
 import android.view.MotionEvent;
 import android.view.View;
 
+import androidx.annotation.RequiresApi;
+
+import com.iotp.hsvcolorpicker.engine.ColorPickerState;
+import com.iotp.hsvcolorpicker.engine.DragTrajectory;
+import com.iotp.hsvcolorpicker.engine.HsvMath;
 import com.iotp.hsvcolorpicker.event.AlphaColorChangedListener;
+import com.iotp.hsvcolorpicker.event.DragTrajectoryListener;
 import com.iotp.hsvcolorpicker.utils.Constant;
 import com.iotp.hsvcolorpicker.utils.DrawingUtils;
 
@@ -33,13 +40,10 @@ public class AlphaView extends View {
      */
     private final static int BORDER_WIDTH_PX = 1;
 
-    private Paint alphaPaint;
-    private Paint alphaTextPaint;
     private Paint alphaTrackerPaint;
 
     private Paint thumbPaint;
     private Paint borderPaint;
-    private Shader alphaShader;
 
     /*
      * We cache a bitmap of the sat/val panel which is expensive to draw each time.
@@ -55,6 +59,7 @@ public class AlphaView extends View {
     private String alphaSliderText = null;
     private int sliderTrackerColor = DEFAULT_SLIDER_COLOR;
     private int borderColor = DEFAULT_BORDER_COLOR;
+    private final float[] hsvScratch = new float[3];
 
     /**
      * The Rect in which we are allowed to draw.
@@ -67,9 +72,47 @@ public class AlphaView extends View {
 
     private Point startTouchPoint = null;
 
-    private AlphaPatternDrawable alphaPatternDrawable;
     private AlphaColorChangedListener onAlphaColorChangedListener;
     private boolean callBack = false;
+    private final FrameCoalescer coalescer = new FrameCoalescer(new Runnable() {
+        @Override
+        public void run() {
+            notifyColorChanged();
+        }
+    });
+    private int dispatchMode = FrameCoalescer.DISPATCH_IMMEDIATE;
+    private boolean flushOnRelease = true;
+    private final PickerStats stats = new PickerStats("AlphaView");
+    /* Draws the checkerboard and the gradient and maps the touches, shared with ColorPickerView. */
+    private final AlphaPanel alphaPanel = new AlphaPanel(this, stats);
+    /* Background recorded in a RenderNode on API 29+, and the gradient color it was recorded with. */
+    private StaticLayer staticLayer;
+    private int layerColor;
+    /* Thumb bounds as last drawn, empty until the first draw. */
+    private final Rect thumbBounds = new Rect();
+    private final Rect dirtyBounds = new Rect();
+    private final Point thumbPoint = new Point();
+    private final Point dirtyPoint = new Point();
+    /* Samples of the current drag, see DragTrajectory. */
+    private final DragTrajectory trajectory = new DragTrajectory();
+    private DragTrajectoryListener dragTrajectoryListener;
+    /* Shared color when bound, see setState. */
+    private ColorPickerState state;
+    private final ColorPickerState.Observer stateObserver = new ColorPickerState.Observer() {
+        @Override
+        public void onStateChanged(ColorPickerState state, int changes, Object source) {
+            // Changes made by this view are already drawn.
+            if (source != AlphaView.this) {
+                readState(changes);
+                // The gradient depends on the color, the alpha only moves the thumb.
+                if ((changes & ColorPickerState.CHANGED_ALPHA) != changes) {
+                    invalidate();
+                } else {
+                    invalidateThumb();
+                }
+            }
+        }
+    };
 
     public AlphaView(Context context) {
         this(context, null);
@@ -122,9 +165,12 @@ public class AlphaView extends View {
         alphaSliderText = a.getString(R.styleable.AlphaView_alphaChannelText);
         sliderTrackerColor = a.getColor(R.styleable.AlphaView_sliderColor, 0xFFBDBDBD);
         borderColor = a.getColor(R.styleable.AlphaView_cpv_borderColor, 0xFF6E6E6E);
+        dispatchMode = a.getInt(R.styleable.AlphaView_dispatchMode, FrameCoalescer.DISPATCH_IMMEDIATE);
+        flushOnRelease = a.getBoolean(R.styleable.AlphaView_flushOnRelease, true);
         a.recycle();
 
         applyThemeColors(context);
+        GradientCache.getInstance().attach(context);
         initPaintTools();
 
         //Needed for receiving trackball motion events.
@@ -154,20 +200,12 @@ public class AlphaView extends View {
 
     private void initPaintTools() {
         alphaTrackerPaint = new Paint();
-        alphaPaint = new Paint();
-        alphaTextPaint = new Paint();
         borderPaint = new Paint();
         thumbPaint = new Paint();
         alphaTrackerPaint.setColor(sliderTrackerColor);
         alphaTrackerPaint.setStyle(Paint.Style.STROKE);
         alphaTrackerPaint.setStrokeWidth(DrawingUtils.dpToPx(getContext(), 2));
         alphaTrackerPaint.setAntiAlias(true);
-
-        alphaTextPaint.setColor(0xff1c1c1c);
-        alphaTextPaint.setTextSize(DrawingUtils.dpToPx(getContext(), 14));
-        alphaTextPaint.setAntiAlias(true);
-        alphaTextPaint.setTextAlign(Paint.Align.CENTER);
-        alphaTextPaint.setFakeBoldText(true);
     }
 
     @Override
@@ -175,45 +213,78 @@ public class AlphaView extends View {
         if (drawingRect.width() <= 0 || drawingRect.height() <= 0) {
             return;
         }
+        stats.beginDraw();
         drawAlphaPanel(canvas);
+        stats.endDraw();
     }
 
     private void drawAlphaPanel(Canvas canvas) {
         /*
          * Will be drawn with hw acceleration, very fast.
-         * Also the AlphaPatternDrawable is backed by a bitmap
-         * generated only once if the size does not change.
+         * Also the AlphaPatternDrawable only repeats a small shared tile,
+         * nothing is generated when the size changes.
          */
 
-        if (!showAlphaPanel || alphaRect == null || alphaPatternDrawable == null) {
+        if (!showAlphaPanel || alphaRect == null) {
             return;
         }
-        final RectF rect = alphaRect;
-        if (BORDER_WIDTH_PX > 0) {
-            borderPaint.setColor(borderColor);
-            canvas.drawRoundRect(new RectF(
-                    rect.left - BORDER_WIDTH_PX, rect.top - BORDER_WIDTH_PX, rect.right - BORDER_WIDTH_PX,
-                    rect.bottom + BORDER_WIDTH_PX), roundPx, roundPx, borderPaint);
+        if (StaticLayer.canDraw(canvas)) {
+            drawStaticLayer(canvas);
+        } else {
+            drawAlphaBackground(canvas);
         }
+        Point p = thumbPoint(thumbPoint);
+        DrawingUtils.drawnThumb(canvas, p, thumbPaint, drawingRect.height(), getColor());
+        DrawingUtils.thumbBounds(p, drawingRect.height(), thumbBounds);
+    }
 
-        alphaPatternDrawable.draw(canvas);
-        float[] hsv = new float[]{hue, sat, val};
-        int color = Color.HSVToColor(hsv);
-        int alphaColor = Color.HSVToColor(0, hsv);
-
-        alphaShader = new LinearGradient(rect.left, rect.top, rect.right, rect.top, alphaColor, color, Shader.TileMode.CLAMP);
+    /* Border, checkerboard, gradient and text, everything but the thumb. */
+    private void drawAlphaBackground(Canvas canvas) {
+        borderPaint.setColor(borderColor);
+        alphaPanel.draw(canvas, hue, sat, val, alphaSliderText, borderPaint);
+    }
 
-        alphaPaint.setShader(alphaShader);
+    /**
+     * Replay the recorded background, it is only recorded again when the color of the gradient
+     * or the checkerboard changed. Dragging the alpha only records the thumb.
+     */
+    @RequiresApi(Build.VERSION_CODES.Q)
+    private void drawStaticLayer(Canvas canvas) {
+        if (staticLayer == null) {
+            staticLayer = new StaticLayer("AlphaView", new StaticLayer.Recorder() {
+                @Override
+                public void record(Canvas canvas) {
+                    drawAlphaBackground(canvas);
+                }
+            });
+        }
+        final int gradientColor = HsvMath.hsvToColor(hue, sat, val);
+        if (layerColor != gradientColor) {
+            staticLayer.invalidate();
+            layerColor = gradientColor;
+        }
+        staticLayer.draw(canvas, getWidth(), getHeight());
+    }
 
-        canvas.drawRoundRect(rect, roundPx, roundPx, alphaPaint);
+    private Point thumbPoint(Point p) {
+        alphaToPoint(alpha, p);
+        p.y = p.y * 2;
+        return p;
+    }
 
-        if (alphaSliderText != null && !alphaSliderText.equals("")) {
-            canvas.drawText(alphaSliderText, rect.centerX(), rect.centerY() + DrawingUtils.dpToPx(getContext(), 4),
-                    alphaTextPaint);
+    /**
+     * Invalidate only where the thumb was drawn and where it is drawn next, the panel under it
+     * did not change. This saves the fill work of software layers. On hardware accelerated
+     * windows the framework computes the damaged area itself and ignores the rect.
+     */
+    private void invalidateThumb() {
+        if (thumbBounds.isEmpty()) {
+            invalidate();
+            return;
         }
-        Point p = alphaToPoint(alpha);
-        p.y = p.y * 2;
-        DrawingUtils.drawnThumb(canvas, p, thumbPaint, drawingRect.height(), getColor());
+        DrawingUtils.thumbBounds(thumbPoint(dirtyPoint), drawingRect.height(), dirtyBounds);
+        dirtyBounds.union(thumbBounds);
+        invalidate(dirtyBounds);
     }
 
     public void updateHue(int hue, boolean callBack) {
@@ -224,11 +295,8 @@ public class AlphaView extends View {
 
     public void updateAlpha(int color) {
         int alpha = Color.alpha(color);
-        int red = Color.red(color);
-        int blue = Color.blue(color);
-        int green = Color.green(color);
-        float[] hsv = new float[3];
-        Color.RGBToHSV(red, green, blue, hsv);
+        float[] hsv = hsvScratch;
+        HsvMath.colorToHsv(color, hsv);
         this.alpha = alpha;
         hue = hsv[0];
         sat = hsv[1];
@@ -236,28 +304,14 @@ public class AlphaView extends View {
         invalidate();
     }
 
-    private Point alphaToPoint(int alpha) {
-        final RectF rect = alphaRect;
-        final float width = rect.width();
-        Point p = new Point();
-        p.x = (int) ((alpha * width / Constant.DEFAULT_ALPHA_VALUE) + rect.left);
-        p.y = (int) rect.top;
-
+    private Point alphaToPoint(int alpha, Point p) {
+        p.x = (int) alphaPanel.alphaToX(alpha);
+        p.y = (int) alphaRect.top;
         return p;
     }
 
-    private int pointToAlpha(int x) {
-        final RectF rect = alphaRect;
-        final int width = (int) rect.width();
-        final int right = (int) rect.right;
-        final int left = (int) rect.left;
-        if (x < left) {
-            x = 0;
-        } else if (x > right) {
-            x = width;
-        }
-        float result = (x / rect.width()) * Constant.DEFAULT_ALPHA_VALUE;
-        return (int) result;
+    private int pointToAlpha(float x) {
+        return alphaPanel.alphaAt(x);
     }
 
     @Override
@@ -268,6 +322,7 @@ public class AlphaView extends View {
 
             case MotionEvent.ACTION_DOWN:
                 startTouchPoint = new Point((int) event.getX(), (int) event.getY());
+                trajectory.reset();
                 update = moveTrackersIfNeeded(event);
                 break;
             case MotionEvent.ACTION_MOVE:
@@ -280,10 +335,8 @@ public class AlphaView extends View {
         }
 
         if (update) {
-            if (onAlphaColorChangedListener != null && callBack) {
-                onAlphaColorChangedListener.onAlphaChanged(Color.HSVToColor(this.alpha, new float[]{hue, sat, val}));
-            }
-            invalidate();
+            dispatchColorChange(event.getAction() == MotionEvent.ACTION_UP);
+            invalidateThumb();
             return true;
         }
 
@@ -296,8 +349,13 @@ public class AlphaView extends View {
         }
         boolean update = false;
         if (alphaRect != null) {
-            alpha = pointToAlpha((int) event.getX());
-            Log.v("Alpha onMeasure", alpha + "");
+            // Samples batched by the system since the previous event, oldest first.
+            final int historySize = event.getHistorySize();
+            for (int h = 0; h < historySize; h++) {
+                trajectory.add(event.getHistoricalEventTime(h), pointToAlpha(event.getHistoricalX(h)), 0f);
+            }
+            alpha = pointToAlpha(event.getX());
+            trajectory.add(event.getEventTime(), alpha, 0f);
             update = true;
             callBack = true;
         }
@@ -305,10 +363,59 @@ public class AlphaView extends View {
     }
 
     @Override
-    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        Log.v("Alpha onMeasure w", MeasureSpec.toString(widthMeasureSpec));
-        Log.v("Alpha onMeasure h", MeasureSpec.toString(heightMeasureSpec));
+    protected void onDetachedFromWindow() {
+        coalescer.cancel();
+        if (staticLayer != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            staticLayer.discard();
+        }
+        super.onDetachedFromWindow();
+    }
+
+    private void dispatchColorChange(boolean release) {
+        if ((onAlphaColorChangedListener == null && dragTrajectoryListener == null && state == null) || !callBack) {
+            return;
+        }
+        if (dispatchMode == FrameCoalescer.DISPATCH_PER_FRAME) {
+            coalescer.post();
+            if (release && flushOnRelease) {
+                coalescer.flush();
+            }
+        } else {
+            notifyColorChanged();
+        }
+    }
+
+    private void notifyColorChanged() {
+        stats.countDispatch();
+        if (state != null) {
+            state.setAlpha(alpha, this);
+        }
+        // The listener may have been removed while a dispatch was pending.
+        if (onAlphaColorChangedListener != null) {
+            onAlphaColorChangedListener.onAlphaChanged(HsvMath.hsvToColor(this.alpha, hue, sat, val));
+        }
+        if (dragTrajectoryListener != null) {
+            dragTrajectoryListener.onDragTrajectory(this, trajectory);
+        }
+    }
 
+    private void readState(int changes) {
+        if ((changes & ColorPickerState.CHANGED_HUE) != 0) {
+            hue = state.getHue();
+        }
+        if ((changes & ColorPickerState.CHANGED_SAT) != 0) {
+            sat = state.getSat();
+        }
+        if ((changes & ColorPickerState.CHANGED_VAL) != 0) {
+            val = state.getVal();
+        }
+        if ((changes & ColorPickerState.CHANGED_ALPHA) != 0) {
+            alpha = state.getAlpha();
+        }
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         int desiredWidth = getSuggestedMinimumWidth() + getPaddingLeft() + getPaddingRight();
         int desiredHeight = getSuggestedMinimumHeight() + getPaddingTop() + getPaddingBottom();
         int width = measureDimension(desiredWidth, widthMeasureSpec);
@@ -347,8 +454,6 @@ public class AlphaView extends View {
         drawingRect.top = getPaddingTop();
         drawingRect.bottom = h - getPaddingBottom();
 
-        //The need to be recreated because they depend on the size of the view.
-        alphaShader = null;
         setUpAlphaRect();
     }
 
@@ -364,13 +469,109 @@ public class AlphaView extends View {
         float right = dRect.right + BORDER_WIDTH_PX;
 
         alphaRect = new RectF(left, top, right, bottom);
-        alphaPatternDrawable = new AlphaPatternDrawable(DrawingUtils.dpToPx(getContext(), 4));
-        alphaPatternDrawable.setRoundDx(roundPx);
-        alphaPatternDrawable.setBounds(
-                Math.round(alphaRect.left),
-                Math.round(alphaRect.top),
-                Math.round(alphaRect.right),
-                Math.round(alphaRect.bottom));
+        alphaPanel.setBounds(left, top, right, bottom, roundPx);
+    }
+
+    /**
+     * Does nothing, the checkerboard is a small shared tile and is no longer generated for the
+     * size of the view.
+     *
+     * @deprecated there is nothing left to render in the background.
+     */
+    @Deprecated
+    public void setAsyncRendering(boolean async) {
+    }
+
+    @Override
+    protected boolean verifyDrawable(Drawable who) {
+        return who == alphaPanel.getPatternDrawable() || super.verifyDrawable(who);
+    }
+
+    @Override
+    public void invalidateDrawable(Drawable drawable) {
+        if (drawable == alphaPanel.getPatternDrawable() && staticLayer != null) {
+            // The checkerboard is recorded in the static layer.
+            staticLayer.invalidate();
+        }
+        super.invalidateDrawable(drawable);
+    }
+
+    /**
+     * Set how the changes made by touch are delivered to the listener.
+     *
+     * @param dispatchMode {@link FrameCoalescer#DISPATCH_IMMEDIATE} or {@link FrameCoalescer#DISPATCH_PER_FRAME}.
+     */
+    public void setDispatchMode(int dispatchMode) {
+        this.dispatchMode = dispatchMode;
+        if (dispatchMode == FrameCoalescer.DISPATCH_IMMEDIATE) {
+            coalescer.flush();
+        }
+    }
+
+    public int getDispatchMode() {
+        return dispatchMode;
+    }
+
+    /**
+     * With {@link FrameCoalescer#DISPATCH_PER_FRAME}, deliver the value the finger was
+     * lifted at right away instead of on the next frame. True by default.
+     */
+    public void setFlushOnRelease(boolean flushOnRelease) {
+        this.flushOnRelease = flushOnRelease;
+    }
+
+    public boolean isFlushOnRelease() {
+        return flushOnRelease;
+    }
+
+    /**
+     * Get the samples of the drags, with their velocity, along with the color changes made by touch.
+     * Follows the dispatch mode of the view.
+     */
+    public void setOnDragTrajectoryListener(DragTrajectoryListener listener) {
+        dragTrajectoryListener = listener;
+    }
+
+    /**
+     * @return the draw, rebuild and dispatch counts of this view, recorded while
+     * {@link PickerStats#setEnabled(boolean)} is on.
+     */
+    public PickerStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Bind the view to a color shared with other views. The view shows the state, and writes
+     * the components it edits to it, following the dispatch mode of the view.
+     * Unbind with null if the state outlives the view.
+     */
+    public void setState(ColorPickerState state) {
+        if (this.state != null) {
+            this.state.removeObserver(stateObserver);
+        }
+        this.state = state;
+        if (state != null) {
+            state.addObserver(stateObserver);
+            readState(ColorPickerState.CHANGED_ALL);
+            invalidate();
+        }
+    }
+
+    public ColorPickerState getState() {
+        return state;
+    }
+
+    /**
+     * Same as the alphaChannelVisible attribute.
+     */
+    public void setAlphaChannelVisible(boolean visible) {
+        if (showAlphaPanel != visible) {
+            showAlphaPanel = visible;
+            if (drawingRect != null) {
+                setUpAlphaRect();
+            }
+            invalidate();
+        }
     }
 
     /**
@@ -389,7 +590,7 @@ public class AlphaView extends View {
      * @return the current color.
      */
     public int getColor() {
-        return Color.HSVToColor(alpha, new float[]{hue, sat, val});
+        return HsvMath.hsvToColor(alpha, hue, sat, val);
     }
 
     /**
@@ -410,20 +611,21 @@ public class AlphaView extends View {
     public void setColor(int color, boolean callback) {
         this.callBack = callback;
         int alpha = Color.alpha(color);
-        int red = Color.red(color);
-        int blue = Color.blue(color);
-        int green = Color.green(color);
-
-        float[] hsv = new float[3];
+        float[] hsv = hsvScratch;
 
-        Color.RGBToHSV(red, green, blue, hsv);
+        HsvMath.colorToHsv(color, hsv);
 
         this.alpha = alpha;
         hue = hsv[0];
         sat = hsv[1];
         val = hsv[2];
+        if (state != null) {
+            // Keeps the hue of gray colors and updates the other bound views.
+            state.setColor(color, this);
+            readState(ColorPickerState.CHANGED_ALL);
+        }
         if (this.callBack && onAlphaColorChangedListener != null) {
-            onAlphaColorChangedListener.onAlphaChanged(Color.HSVToColor(this.alpha, new float[]{hue, sat, val}));
+            onAlphaColorChangedListener.onAlphaChanged(HsvMath.hsvToColor(this.alpha, hue, sat, val));
         }
         invalidate();
     }
@@ -0,0 +1,132 @@
+package com.iotp.hsvcolorpicker;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates picker bitmaps on a dedicated thread.
+ * <p>
+ * Each view owns one rasterizer. The view keeps drawing its last completed bitmap (front buffer)
+ * while the new one (back buffer) is generated, and swaps it in when {@link Consumer#onBitmapReady(Bitmap)}
+ * is called on the main thread. Submitting a new request cancels the previous one, so only the
+ * latest hue/size ever reaches the view.
+ */
+public final class AsyncRasterizer {
+
+    /**
+     * Builds the bitmap, called on the raster thread.
+     * Must only use what it captured when submitted, the view keeps changing meanwhile. The
+     * {@link GradientCache} and the rebuild hooks of {@link PickerStats} are thread safe and can
+     * be used. If it throws, the request is dropped and the consumer is never called.
+     */
+    public interface Producer {
+        Bitmap produce();
+    }
+
+    /**
+     * Receives the bitmap, called on the main thread.
+     */
+    public interface Consumer {
+        void onBitmapReady(Bitmap bitmap);
+    }
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "Picker-raster");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+    private final AtomicInteger generation = new AtomicInteger();
+    private Future<?> pending;
+    private Object pendingTag;
+
+    /**
+     * Generate a bitmap in the background, cancelling any request still running.
+     *
+     * @param tag      identifies what is being generated, e.g. the hue. See {@link #isPending(Object)}.
+     * @param producer builds the bitmap on the raster thread.
+     * @param consumer receives the bitmap on the main thread, unless a newer request was submitted meanwhile.
+     */
+    public void submit(Object tag, final Producer producer, final Consumer consumer) {
+        final int requestGeneration = generation.incrementAndGet();
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        pendingTag = tag;
+        pending = EXECUTOR.submit(new Runnable() {
+            @Override
+            public void run() {
+                if (requestGeneration != generation.get()) {
+                    return;
+                }
+                Bitmap bitmap = null;
+                try {
+                    bitmap = producer.produce();
+                } catch (RuntimeException e) {
+                    Log.e("AsyncRasterizer", "The bitmap could not be generated", e);
+                } finally {
+                    // Even on failure, or the request would look pending forever.
+                    deliver(requestGeneration, bitmap, consumer);
+                }
+            }
+        });
+    }
+
+    /**
+     * Clear the request on the main thread and hand the bitmap over, if no other request was
+     * submitted meanwhile. Nothing is handed over when the producer failed.
+     */
+    private void deliver(final int requestGeneration, final Bitmap bitmap, final Consumer consumer) {
+        MAIN_HANDLER.post(new Runnable() {
+            @Override
+            public void run() {
+                if (requestGeneration != generation.get()) {
+                    return;
+                }
+                pending = null;
+                pendingTag = null;
+                if (bitmap != null) {
+                    consumer.onBitmapReady(bitmap);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return true if a request is still running.
+     */
+    public boolean hasPending() {
+        return pending != null;
+    }
+
+    /**
+     * @return true if a request for the given tag is still running.
+     */
+    public boolean isPending(Object tag) {
+        return pending != null && pendingTag != null && pendingTag.equals(tag);
+    }
+
+    /**
+     * Drop the running request, its bitmap will never be delivered.
+     */
+    public void cancel() {
+        generation.incrementAndGet();
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        pending = null;
+        pendingTag = null;
+    }
+}
@@ -0,0 +1,75 @@
+package com.iotp.hsvcolorpicker;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Build;
+
+import com.iotp.hsvcolorpicker.engine.GradientRasterizer;
+
+/**
+ * How the gradient bitmaps of a picker view are stored.
+ * <ul>
+ * <li>{@link #BITMAP_ARGB_8888}: 4 bytes per pixel on the Java heap, exact colors.</li>
+ * <li>{@link #BITMAP_RGB_565}: 2 bytes per pixel, ordered dithering hides the banding.</li>
+ * <li>{@link #BITMAP_HARDWARE}: uploaded once to graphics memory, nothing is kept on the Java heap.
+ * Only on {@link Build.VERSION_CODES#O} and later, and only for hardware accelerated canvases, other
+ * canvases get the ARGB_8888 bitmap.</li>
+ * </ul>
+ */
+public final class BitmapStrategy {
+
+    public final static int BITMAP_ARGB_8888 = 0;
+    public final static int BITMAP_RGB_565 = 1;
+    public final static int BITMAP_HARDWARE = 2;
+
+    private BitmapStrategy() {
+    }
+
+    /**
+     * @return the config the bitmaps of the strategy have when drawn on the canvas, also part of
+     * the {@link GradientCache} key.
+     */
+    public static Bitmap.Config resolveConfig(int strategy, Canvas canvas) {
+        return resolveConfig(strategy, canvas.isHardwareAccelerated());
+    }
+
+    /**
+     * Same as {@link #resolveConfig(int, Canvas)}, for bitmaps built before the canvas is known,
+     * e.g. on layout with {@link android.view.View#isHardwareAccelerated()}.
+     */
+    public static Bitmap.Config resolveConfig(int strategy, boolean hardwareAccelerated) {
+        if (strategy == BITMAP_RGB_565) {
+            return Bitmap.Config.RGB_565;
+        }
+        if (strategy == BITMAP_HARDWARE && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+                && hardwareAccelerated) {
+            return Bitmap.Config.HARDWARE;
+        }
+        return Bitmap.Config.ARGB_8888;
+    }
+
+    /**
+     * Upload opaque pixels in a new bitmap of the given config. Can run on any thread.
+     *
+     * @param pixels width * height colors, row major. Dithered in place for RGB_565.
+     * @param config a config returned by {@link #resolveConfig(int, Canvas)}.
+     */
+    public static Bitmap createBitmap(int[] pixels, int width, int height, Bitmap.Config config) {
+        if (config == Bitmap.Config.RGB_565) {
+            GradientRasterizer.ditherTo565(pixels, width, height);
+            Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
+            bitmap.setPixels(pixels, 0, width, 0, 0, width, height);
+            return bitmap;
+        }
+        Bitmap bitmap = Bitmap.createBitmap(pixels, width, height, Bitmap.Config.ARGB_8888);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && config == Bitmap.Config.HARDWARE) {
+            // The software copy only lives until the upload is done.
+            Bitmap hardware = bitmap.copy(Bitmap.Config.HARDWARE, false);
+            if (hardware != null) {
+                bitmap.recycle();
+                return hardware;
+            }
+        }
+        return bitmap;
+    }
+}
@@ -24,11 +24,10 @@ import androidx.annotation.ColorInt;
 import androidx.core.view.GravityCompat;
 import androidx.core.view.ViewCompat;
 
+import com.iotp.hsvcolorpicker.engine.HexCodec;
 import com.iotp.hsvcolorpicker.utils.Constant;
 import com.iotp.hsvcolorpicker.utils.DrawingUtils;
 
-import java.util.Locale;
-
 public class ColorPanelView extends View {
 
     private final static int DEFAULT_BORDER_COLOR = 0xFF6E6E6E;
@@ -48,6 +47,7 @@ public class ColorPanelView extends View {
     private int borderColor = DEFAULT_BORDER_COLOR;
     private int color = Color.BLACK;
     private int shape;
+    private final PickerStats stats = new PickerStats("ColorPanelView");
 
     public ColorPanelView(Context context) {
         this(context, null);
@@ -97,6 +97,7 @@ public class ColorPanelView extends View {
             typedArray.recycle();
         }
         borderWidthPx = DrawingUtils.dpToPx(context, 1);
+        GradientCache.getInstance().attach(context);
         borderPaint = new Paint();
         borderPaint.setAntiAlias(true);
         colorPaint = new Paint();
@@ -114,6 +115,7 @@ public class ColorPanelView extends View {
     }
 
     @Override protected void onDraw(Canvas canvas) {
+        stats.beginDraw();
         borderPaint.setColor(borderColor);
         colorPaint.setColor(color);
         if (shape == ColorShape.SQUARE) {
@@ -139,6 +141,7 @@ public class ColorPanelView extends View {
                 canvas.drawCircle(getMeasuredWidth() / 2, getMeasuredHeight() / 2, outerRadius - borderWidthPx, colorPaint);
             }
         }
+        stats.endDraw();
     }
 
     @Override protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
@@ -257,6 +260,13 @@ public class ColorPanelView extends View {
         invalidate();
     }
 
+    /**
+     * @return the draw counts of this view, recorded while {@link PickerStats#setEnabled(boolean)} is on.
+     */
+    public PickerStats getStats() {
+        return stats;
+    }
+
     /**
      * Show a toast message with the hex color code below the view.
      */
@@ -276,9 +286,9 @@ public class ColorPanelView extends View {
         }
         StringBuilder hint = new StringBuilder("#");
         if (Color.alpha(color) != Constant.DEFAULT_ALPHA_VALUE) {
-            hint.append(Integer.toHexString(color).toUpperCase(Locale.ENGLISH));
+            HexCodec.appendArgb(hint, color);
         } else {
-            hint.append(String.format("%06X", 0xFFFFFF & color).toUpperCase(Locale.ENGLISH));
+            HexCodec.appendRgb(hint, color);
         }
         Toast cheatSheet = Toast.makeText(context, hint.toString(), Toast.LENGTH_SHORT);
         if (midy < displayFrame.height()) {
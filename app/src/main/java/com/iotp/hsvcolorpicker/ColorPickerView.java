@@ -0,0 +1,837 @@
+package com.iotp.hsvcolorpicker;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorMatrix;
+import android.graphics.ColorMatrixColorFilter;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Point;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Parcelable;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.MotionEvent;
+import android.view.View;
+
+import com.iotp.hsvcolorpicker.engine.ColorEnvelope;
+import com.iotp.hsvcolorpicker.engine.ColorPickerState;
+import com.iotp.hsvcolorpicker.engine.DragTrajectory;
+import com.iotp.hsvcolorpicker.engine.HsvMath;
+import com.iotp.hsvcolorpicker.engine.PickerGeometry;
+import com.iotp.hsvcolorpicker.engine.WheelLut;
+import com.iotp.hsvcolorpicker.event.ColorPickerChangedListener;
+import com.iotp.hsvcolorpicker.event.DragTrajectoryListener;
+import com.iotp.hsvcolorpicker.utils.Constant;
+import com.iotp.hsvcolorpicker.utils.DrawingUtils;
+
+/**
+ * The sat/val panel, the hue slider and the alpha slider in a single view.
+ * <p>
+ * Stacking {@link SatView}, {@link HueView} and {@link AlphaView} costs a measure pass, a set of
+ * Paints and a display list per view, and a color change invalidates all three. This view lays out
+ * the three panels in one pass, draws them in one onDraw, and routes a drag to the panel it
+ * started in. The panels are drawn and hit-tested by the same {@link SatValPanel},
+ * {@link HuePanel} and {@link AlphaPanel} as the separate views, so the hue spectrum is shared with
+ * the separate views of the same size through the {@link GradientCache}.
+ * <p>
+ * With the {@link ColorShape#CIRCLE} shape the top panel is a hue/saturation wheel and the first
+ * slider sets the value. The wheel is drawn at full value from the polar tables of
+ * {@link WheelLut}, which also map the touches back to colors, and the value is applied by a
+ * ColorMatrixColorFilter on the paint, so a value change never draws the wheel again.
+ * <p>
+ * The separate views are unchanged and still work on their own or bound to the same
+ * {@link ColorPickerState}.
+ */
+public class ColorPickerView extends View {
+
+    private final static int DEFAULT_BORDER_COLOR = 0xFF6E6E6E;
+    private final static int DEFAULT_SLIDER_COLOR = 0xFFBDBDBD;
+    private final static int THUMB_RADIUS_DP = 10;
+    private final static int SLIDER_HEIGHT_DP = 10;
+    /**
+     * The width in pixels of the border
+     * surrounding all color panels.
+     */
+    private final static int BORDER_WIDTH_PX = 1;
+
+    private final static int REGION_NONE = 0;
+    /* The sat/val square or the wheel. */
+    private final static int REGION_PANEL = 1;
+    /* The hue slider, or the value slider of the wheel. */
+    private final static int REGION_SLIDER = 2;
+    private final static int REGION_ALPHA = 3;
+
+    /* Shared by the three panels. */
+    private final Paint borderPaint = new Paint();
+    private final Paint bitmapPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Paint sliderPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint valueShadePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint thumbPaint = new Paint();
+    private final GradientCache gradientCache = GradientCache.getInstance();
+
+    /* Panel geometry, computed when the size changes. */
+    private final Rect satValRect = new Rect();
+    private final RectF hueRect = new RectF();
+    private final RectF alphaRect = new RectF();
+    private final RectF borderRect = new RectF();
+    private int thumbRadiusPx;
+    private int sliderHeightPx;
+    private int panelSpacingPx;
+
+    /*
+     * Circle shape only: the wheel at full value, the filter applying the value and the black
+     * shade of the value slider. The tables, the wheel and the shade are built on layout and the
+     * filter where the value changes, never while drawing.
+     */
+    private WheelLut wheelLut;
+    private Bitmap wheelBitmap;
+    private final AsyncRasterizer wheelRasterizer = new AsyncRasterizer();
+    private final ColorMatrix valueMatrix = new ColorMatrix();
+    private ColorMatrixColorFilter valueFilter;
+    private float valueFilterVal = -1f;
+    private Shader valueShader;
+    private int shape = ColorShape.SQUARE;
+    private int bitmapStrategy = BitmapStrategy.BITMAP_ARGB_8888;
+
+    /* Current values */
+    private int alpha = Constant.DEFAULT_ALPHA_VALUE;
+    private float hue = 360f;
+    private float sat = 1f;
+    private float val = 1f;
+    private final float[] hsvScratch = new float[3];
+
+    private boolean showAlphaPanel = false;
+    private String alphaSliderText = null;
+    private int sliderTrackerColor = DEFAULT_SLIDER_COLOR;
+    private int borderColor = DEFAULT_BORDER_COLOR;
+
+    /* Panel the current drag started in, it gets every event until the finger is lifted. */
+    private int touchRegion = REGION_NONE;
+    private final Point thumbPoint = new Point();
+    private final DragTrajectory trajectory = new DragTrajectory();
+    private DragTrajectoryListener dragTrajectoryListener;
+    private ColorPickerChangedListener colorChangedListener;
+    /* Reused for every callback, see ColorEnvelope. */
+    private final ColorEnvelope envelope = new ColorEnvelope(0);
+    private final FrameCoalescer coalescer = new FrameCoalescer(new Runnable() {
+        @Override
+        public void run() {
+            notifyColorChanged();
+        }
+    });
+    private int dispatchMode = FrameCoalescer.DISPATCH_IMMEDIATE;
+    private boolean flushOnRelease = true;
+    private final PickerStats stats = new PickerStats("ColorPickerView");
+    /* The panels of the separate views, drawn in the rects laid out by this view. */
+    private final SatValPanel satValPanel = new SatValPanel(this, stats);
+    private final HuePanel huePanel = new HuePanel(this, stats);
+    private final AlphaPanel alphaPanel = new AlphaPanel(this, stats);
+
+    /* Shared color when bound, see setState. */
+    private ColorPickerState state;
+    private final ColorPickerState.Observer stateObserver = new ColorPickerState.Observer() {
+        @Override
+        public void onStateChanged(ColorPickerState state, int changes, Object source) {
+            // Changes made by this view are already drawn.
+            if (source != ColorPickerView.this) {
+                readState(changes);
+                invalidate();
+            }
+        }
+    };
+
+    public ColorPickerView(Context context) {
+        this(context, null);
+    }
+
+    public ColorPickerView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public ColorPickerView(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+        init(context, attrs);
+    }
+
+    @Override
+    public Parcelable onSaveInstanceState() {
+        Bundle state = new Bundle();
+        state.putParcelable("instanceState", super.onSaveInstanceState());
+        state.putInt("alpha", alpha);
+        state.putFloat("hue", hue);
+        state.putFloat("sat", sat);
+        state.putFloat("val", val);
+        state.putBoolean("show_alpha", showAlphaPanel);
+        state.putString("alpha_text", alphaSliderText);
+
+        return state;
+    }
+
+    @Override
+    public void onRestoreInstanceState(Parcelable state) {
+
+        if (state instanceof Bundle) {
+            Bundle bundle = (Bundle) state;
+            alpha = bundle.getInt("alpha");
+            hue = bundle.getFloat("hue");
+            sat = bundle.getFloat("sat");
+            val = bundle.getFloat("val");
+            updateValueFilter();
+            showAlphaPanel = bundle.getBoolean("show_alpha");
+            alphaSliderText = bundle.getString("alpha_text");
+
+            state = bundle.getParcelable("instanceState");
+        }
+        super.onRestoreInstanceState(state);
+    }
+
+    private void init(Context context, AttributeSet attrs) {
+        //Load those if set in xml resource file.
+        TypedArray a = getContext().obtainStyledAttributes(attrs, R.styleable.ColorPickerView);
+        showAlphaPanel = a.getBoolean(R.styleable.ColorPickerView_cpv_alphaChannelVisible, false);
+        alphaSliderText = a.getString(R.styleable.ColorPickerView_cpv_alphaChannelText);
+        sliderTrackerColor = a.getColor(R.styleable.ColorPickerView_cpv_sliderColor, DEFAULT_SLIDER_COLOR);
+        borderColor = a.getColor(R.styleable.ColorPickerView_cpv_borderColor, DEFAULT_BORDER_COLOR);
+        setBitmapStrategy(a.getInt(R.styleable.ColorPickerView_bitmapStrategy, BitmapStrategy.BITMAP_ARGB_8888));
+        dispatchMode = a.getInt(R.styleable.ColorPickerView_dispatchMode, FrameCoalescer.DISPATCH_IMMEDIATE);
+        flushOnRelease = a.getBoolean(R.styleable.ColorPickerView_flushOnRelease, true);
+        shape = a.getInt(R.styleable.ColorPickerView_cpv_colorShape, ColorShape.SQUARE);
+        a.recycle();
+
+        applyThemeColors(context);
+        gradientCache.attach(context);
+        thumbRadiusPx = DrawingUtils.dpToPx(context, THUMB_RADIUS_DP);
+        sliderHeightPx = DrawingUtils.dpToPx(context, SLIDER_HEIGHT_DP);
+        // Room for the thumbs of two neighbor panels.
+        panelSpacingPx = thumbRadiusPx * 2;
+        borderPaint.setColor(borderColor);
+
+        //Needed for receiving trackball motion events.
+        setFocusable(true);
+        setFocusableInTouchMode(true);
+    }
+
+    private void applyThemeColors(Context c) {
+        // If no specific border/slider color has been
+        // set we take the default secondary text color
+        // as border/slider color. Thus it will adopt
+        // to theme changes automatically.
+
+        final TypedValue value = new TypedValue();
+        TypedArray a = c.obtainStyledAttributes(value.data, new int[]{android.R.attr.textColorSecondary});
+
+        if (borderColor == DEFAULT_BORDER_COLOR) {
+            borderColor = a.getColor(0, DEFAULT_BORDER_COLOR);
+        }
+
+        if (sliderTrackerColor == DEFAULT_SLIDER_COLOR) {
+            sliderTrackerColor = a.getColor(0, DEFAULT_SLIDER_COLOR);
+        }
+
+        a.recycle();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        if (MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.UNSPECIFIED) {
+            width = getSuggestedMinimumWidth() + getPaddingLeft() + getPaddingRight();
+        }
+        // A square sat/val panel as wide as the view, then the sliders.
+        int panelSize = width - getPaddingLeft() - getPaddingRight() - thumbRadiusPx * 2;
+        int desiredHeight = Math.max(panelSize, 0) + slidersHeight() + thumbRadiusPx * 2
+                + getPaddingTop() + getPaddingBottom();
+        int height = resolveSize(Math.max(desiredHeight, getSuggestedMinimumHeight()), heightMeasureSpec);
+        setMeasuredDimension(width, height);
+    }
+
+    /* Height of the sliders below the sat/val panel, with the spacing above each. */
+    private int slidersHeight() {
+        int count = showAlphaPanel ? 2 : 1;
+        return count * (panelSpacingPx + sliderHeightPx);
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        setUpRects();
+    }
+
+    private void setUpRects() {
+        // The panels are inset by the thumb radius so the thumbs are never clipped.
+        final int left = getPaddingLeft() + thumbRadiusPx;
+        final int right = getWidth() - getPaddingRight() - thumbRadiusPx;
+        final int top = getPaddingTop() + thumbRadiusPx;
+        final int bottom = getHeight() - getPaddingBottom() - thumbRadiusPx;
+
+        final int panelBottom = Math.max(top, bottom - slidersHeight());
+        if (shape == ColorShape.CIRCLE) {
+            // The largest centered square, the sliders keep the full width.
+            final int size = Math.min(right - left, panelBottom - top);
+            final int panelLeft = left + (right - left - size) / 2;
+            satValRect.set(panelLeft, panelBottom - size, panelLeft + size, panelBottom);
+        } else {
+            satValRect.set(left, top, right, panelBottom);
+        }
+        satValPanel.setBounds(satValRect.left, satValRect.top, satValRect.right, satValRect.bottom);
+        final float round = sliderHeightPx / 2f;
+        float sliderTop = satValRect.bottom + panelSpacingPx;
+        hueRect.set(left, sliderTop, right, sliderTop + sliderHeightPx);
+        huePanel.setBounds(hueRect.left, hueRect.top, hueRect.right, hueRect.bottom, round);
+        if (showAlphaPanel) {
+            sliderTop = hueRect.bottom + panelSpacingPx;
+            alphaRect.set(left, sliderTop, right, sliderTop + sliderHeightPx);
+            alphaPanel.setBounds(alphaRect.left, alphaRect.top, alphaRect.right, alphaRect.bottom, round);
+        } else {
+            alphaRect.setEmpty();
+        }
+        // The gradients of the circle shape depend on the size.
+        valueShader = null;
+        if (shape == ColorShape.CIRCLE && satValRect.width() > 0) {
+            if (wheelLut == null || wheelLut.getSize() != satValRect.width()) {
+                wheelLut = WheelLut.forSize(satValRect.width());
+            }
+            updateWheel();
+            updateValueFilter();
+            // Only the black shade, the color under it is drawn with the paint color.
+            valueShader = new LinearGradient(hueRect.left, hueRect.top, hueRect.right, hueRect.top,
+                    Color.BLACK, Color.TRANSPARENT, Shader.TileMode.CLAMP);
+            valueShadePaint.setShader(valueShader);
+        }
+    }
+
+    /**
+     * Circle shape only: the wheel of the current size for the canvas the view will most likely
+     * be drawn on. Kept here so an eviction from the {@link GradientCache} never rebuilds it
+     * while drawing.
+     */
+    private void updateWheel() {
+        final int size = satValRect.width();
+        final Bitmap.Config config = wheelConfig(BitmapStrategy.resolveConfig(bitmapStrategy, isHardwareAccelerated()));
+        if (wheelBitmap != null && wheelBitmap.getWidth() == size && wheelBitmap.getConfig() == config) {
+            return;
+        }
+        wheelRasterizer.cancel();
+        wheelBitmap = obtainWheel(gradientCache, stats, wheelLut, config);
+    }
+
+    /**
+     * The wheel has transparent corners, RGB_565 has no alpha.
+     */
+    private static Bitmap.Config wheelConfig(Bitmap.Config config) {
+        return config == Bitmap.Config.RGB_565 ? Bitmap.Config.ARGB_8888 : config;
+    }
+
+    /**
+     * Circle shape only: the filter for the value drawn on the wheel, called wherever the value
+     * changes so the drawing only reuses it. Updated in place where the platform allows it, so a
+     * value drag doesn't allocate either.
+     */
+    private void updateValueFilter() {
+        if (shape != ColorShape.CIRCLE || (valueFilter != null && valueFilterVal == val)) {
+            return;
+        }
+        valueMatrix.setScale(val, val, val, 1f);
+        valueFilterVal = val;
+        if (valueFilter != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            // The paint picks the new matrix up on the next draw.
+            valueFilter.setColorMatrix(valueMatrix);
+            return;
+        }
+        valueFilter = new ColorMatrixColorFilter(valueMatrix);
+        bitmapPaint.setColorFilter(valueFilter);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (satValRect.width() <= 0 || satValRect.height() <= 0) {
+            return;
+        }
+        stats.beginDraw();
+        final Bitmap.Config config = BitmapStrategy.resolveConfig(bitmapStrategy, canvas);
+        if (shape == ColorShape.CIRCLE) {
+            drawWheelPanel(canvas, config);
+            drawValuePanel(canvas);
+        } else {
+            drawSatValPanel(canvas);
+            drawHuePanel(canvas);
+        }
+        if (showAlphaPanel) {
+            drawAlphaPanel(canvas);
+        }
+        stats.endDraw();
+    }
+
+    private void drawSatValPanel(Canvas canvas) {
+        satValPanel.draw(canvas, hue, borderPaint);
+        thumbPoint.x = (int) satValPanel.satToX(sat);
+        thumbPoint.y = (int) satValPanel.valToY(val);
+        DrawingUtils.drawnThumb(canvas, thumbPoint, thumbPaint, thumbRadiusPx, getColor());
+    }
+
+    private void drawHuePanel(Canvas canvas) {
+        huePanel.draw(canvas, borderPaint);
+        thumbPoint.x = (int) huePanel.hueToX(hue);
+        thumbPoint.y = (int) hueRect.centerY();
+        DrawingUtils.drawnThumb(canvas, thumbPoint, thumbPaint, hueRect.height(), getColor());
+    }
+
+    private void drawWheelPanel(Canvas canvas, Bitmap.Config config) {
+        final Rect rect = satValRect;
+        final float radius = rect.width() / 2f;
+        canvas.drawCircle(rect.exactCenterX(), rect.exactCenterY(), radius + BORDER_WIDTH_PX, borderPaint);
+
+        final Bitmap.Config wheelConfig = wheelConfig(config);
+        if (isHardwareConfig(wheelBitmap) && wheelConfig != Bitmap.Config.HARDWARE) {
+            // A software canvas, e.g. a snapshot, can't draw the wheel built on layout.
+            requestWheel(wheelConfig);
+        } else {
+            // The paint already has the filter of the current value, see updateValueFilter.
+            canvas.drawBitmap(wheelBitmap, rect.left, rect.top, bitmapPaint);
+        }
+
+        thumbPoint.x = (int) (rect.left + WheelLut.hueSatToX(hue, sat, rect.width()));
+        thumbPoint.y = (int) (rect.top + WheelLut.hueSatToY(hue, sat, rect.width()));
+        DrawingUtils.drawnThumb(canvas, thumbPoint, thumbPaint, thumbRadiusPx, getColor());
+    }
+
+    private void drawValuePanel(Canvas canvas) {
+        final RectF rect = hueRect;
+        final float round = rect.height() / 2;
+        borderRect.set(rect.left - BORDER_WIDTH_PX, rect.top - BORDER_WIDTH_PX, rect.right + BORDER_WIDTH_PX,
+                rect.bottom + BORDER_WIDTH_PX);
+        canvas.drawRoundRect(borderRect, round, round, borderPaint);
+
+        // The color at full value, shaded to black by the gradient of the size drawn over it.
+        sliderPaint.setColor(HsvMath.hsvToColor(hue, sat, 1f));
+        canvas.drawRoundRect(rect, round, round, sliderPaint);
+        canvas.drawRoundRect(rect, round, round, valueShadePaint);
+
+        thumbPoint.x = (int) PickerGeometry.satToX(val, rect.left, rect.width());
+        thumbPoint.y = (int) rect.centerY();
+        DrawingUtils.drawnThumb(canvas, thumbPoint, thumbPaint, rect.height(), getColor());
+    }
+
+    private void drawAlphaPanel(Canvas canvas) {
+        alphaPanel.draw(canvas, hue, sat, val, alphaSliderText, borderPaint);
+        thumbPoint.x = (int) alphaPanel.alphaToX(alpha);
+        thumbPoint.y = (int) alphaRect.centerY();
+        DrawingUtils.drawnThumb(canvas, thumbPoint, thumbPaint, alphaRect.height(), getColor());
+    }
+
+    /**
+     * Build the wheel for the given config on the raster thread, it replaces the one built on
+     * layout when ready.
+     */
+    private void requestWheel(final Bitmap.Config config) {
+        final WheelLut lut = wheelLut;
+        if (wheelRasterizer.isPending(config)) {
+            return;
+        }
+        wheelRasterizer.submit(config, new AsyncRasterizer.Producer() {
+            @Override
+            public Bitmap produce() {
+                return obtainWheel(gradientCache, stats, lut, config);
+            }
+        }, new AsyncRasterizer.Consumer() {
+            @Override
+            public void onBitmapReady(Bitmap bitmap) {
+                if (bitmap.getWidth() == satValRect.width()) {
+                    wheelBitmap = bitmap;
+                    invalidate();
+                }
+            }
+        });
+    }
+
+    private static boolean isHardwareConfig(Bitmap bitmap) {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && bitmap.getConfig() == Bitmap.Config.HARDWARE;
+    }
+
+    /**
+     * Get the wheel from the {@link GradientCache}, drawing it from the polar tables if no view
+     * has drawn it yet. Only uses its arguments so it can run on the raster thread.
+     */
+    private static Bitmap obtainWheel(GradientCache gradientCache, PickerStats stats, WheelLut wheelLut,
+                                      Bitmap.Config config) {
+        final int size = wheelLut.getSize();
+        final GradientCache.Key key = new GradientCache.Key(GradientCache.KIND_WHEEL, size, size, config, 0, 0f, 0);
+        Bitmap bitmap = gradientCache.get(key);
+        if (bitmap != null) {
+            stats.countCacheHit();
+            return bitmap;
+        }
+        stats.countCacheMiss();
+        final long rebuildStart = stats.beginRebuild();
+        int[] pixels = new int[size * size];
+        wheelLut.fill(pixels);
+        bitmap = BitmapStrategy.createBitmap(pixels, size, size, config);
+        stats.endRebuild(rebuildStart);
+        gradientCache.put(key, bitmap);
+        return bitmap;
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        switch (event.getAction()) {
+            case MotionEvent.ACTION_DOWN:
+                touchRegion = regionAt(event.getY());
+                trajectory.reset();
+                break;
+            case MotionEvent.ACTION_MOVE:
+            case MotionEvent.ACTION_UP:
+                break;
+            default:
+                touchRegion = REGION_NONE;
+                return super.onTouchEvent(event);
+        }
+        if (touchRegion == REGION_NONE || (shape == ColorShape.CIRCLE && wheelLut == null)) {
+            // Nothing drawn yet.
+            return super.onTouchEvent(event);
+        }
+
+        final int region = touchRegion;
+        // Samples batched by the system since the previous event, oldest first.
+        final int historySize = event.getHistorySize();
+        for (int h = 0; h < historySize; h++) {
+            addSample(region, event.getHistoricalEventTime(h), event.getHistoricalX(h), event.getHistoricalY(h));
+        }
+        addSample(region, event.getEventTime(), event.getX(), event.getY());
+        applyTouch(region, event.getX(), event.getY());
+
+        final boolean release = event.getAction() == MotionEvent.ACTION_UP;
+        if (release) {
+            touchRegion = REGION_NONE;
+        }
+        dispatchColorChange(release);
+        // One view, the three panels are drawn in the same pass.
+        invalidate();
+        return true;
+    }
+
+    /*
+     * The panels are split half way through the spacing between them, so a touch a bit outside
+     * of a slider still grabs it.
+     */
+    private int regionAt(float y) {
+        final float halfSpacing = panelSpacingPx / 2f;
+        if (y < satValRect.bottom + halfSpacing) {
+            return REGION_PANEL;
+        }
+        if (!showAlphaPanel || y < hueRect.bottom + halfSpacing) {
+            return REGION_SLIDER;
+        }
+        return REGION_ALPHA;
+    }
+
+    private void addSample(int region, long eventTime, float x, float y) {
+        if (shape == ColorShape.CIRCLE) {
+            addWheelSample(region, eventTime, x, y);
+            return;
+        }
+        switch (region) {
+            case REGION_PANEL:
+                trajectory.add(eventTime, satValPanel.satAt(x), satValPanel.valAt(y));
+                break;
+            case REGION_SLIDER:
+                trajectory.add(eventTime, huePanel.hueAt(x), 0f);
+                break;
+            case REGION_ALPHA:
+                trajectory.add(eventTime, alphaPanel.alphaAt(x), 0f);
+                break;
+        }
+    }
+
+    private void addWheelSample(int region, long eventTime, float x, float y) {
+        switch (region) {
+            case REGION_PANEL:
+                trajectory.add(eventTime, wheelLut.hueAt(x - satValRect.left, y - satValRect.top),
+                        wheelLut.satAt(x - satValRect.left, y - satValRect.top));
+                break;
+            case REGION_SLIDER:
+                trajectory.add(eventTime, PickerGeometry.xToSat(x, hueRect.left, hueRect.width()), 0f);
+                break;
+            case REGION_ALPHA:
+                trajectory.add(eventTime, alphaPanel.alphaAt(x), 0f);
+                break;
+        }
+    }
+
+    private void applyTouch(int region, float x, float y) {
+        if (shape == ColorShape.CIRCLE) {
+            applyWheelTouch(region, x, y);
+            return;
+        }
+        switch (region) {
+            case REGION_PANEL:
+                sat = satValPanel.satAt(x);
+                val = satValPanel.valAt(y);
+                break;
+            case REGION_SLIDER:
+                hue = huePanel.hueAt(x);
+                break;
+            case REGION_ALPHA:
+                alpha = alphaPanel.alphaAt(x);
+                break;
+        }
+    }
+
+    /*
+     * Same table reads as the drawing, no atan2 or sqrt per event. A drag outside of the
+     * wheel takes the color of the nearest pixel of its square.
+     */
+    private void applyWheelTouch(int region, float x, float y) {
+        switch (region) {
+            case REGION_PANEL:
+                hue = wheelLut.hueAt(x - satValRect.left, y - satValRect.top);
+                sat = wheelLut.satAt(x - satValRect.left, y - satValRect.top);
+                break;
+            case REGION_SLIDER:
+                val = PickerGeometry.xToSat(x, hueRect.left, hueRect.width());
+                updateValueFilter();
+                break;
+            case REGION_ALPHA:
+                alpha = alphaPanel.alphaAt(x);
+                break;
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        satValPanel.cancel();
+        huePanel.cancel();
+        wheelRasterizer.cancel();
+        coalescer.cancel();
+        super.onDetachedFromWindow();
+    }
+
+    private void dispatchColorChange(boolean release) {
+        if (colorChangedListener == null && dragTrajectoryListener == null && state == null) {
+            return;
+        }
+        if (dispatchMode == FrameCoalescer.DISPATCH_PER_FRAME) {
+            coalescer.post();
+            if (release && flushOnRelease) {
+                coalescer.flush();
+            }
+        } else {
+            notifyColorChanged();
+        }
+    }
+
+    private void notifyColorChanged() {
+        stats.countDispatch();
+        if (state != null) {
+            state.set(hue, sat, val, alpha, this);
+        }
+        // The listener may have been removed while a dispatch was pending.
+        if (colorChangedListener != null) {
+            colorChangedListener.onColorChanged(envelope.set(getColor()), true);
+        }
+        if (dragTrajectoryListener != null) {
+            dragTrajectoryListener.onDragTrajectory(this, trajectory);
+        }
+    }
+
+    private void readState(int changes) {
+        if ((changes & ColorPickerState.CHANGED_HUE) != 0) {
+            hue = state.getHue();
+        }
+        if ((changes & ColorPickerState.CHANGED_SAT) != 0) {
+            sat = state.getSat();
+        }
+        if ((changes & ColorPickerState.CHANGED_VAL) != 0) {
+            val = state.getVal();
+            updateValueFilter();
+        }
+        if ((changes & ColorPickerState.CHANGED_ALPHA) != 0) {
+            alpha = state.getAlpha();
+        }
+    }
+
+    @Override
+    protected boolean verifyDrawable(Drawable who) {
+        return who == alphaPanel.getPatternDrawable() || super.verifyDrawable(who);
+    }
+
+    /**
+     * Set how the gradient bitmaps are stored, see {@link BitmapStrategy}.
+     *
+     * @param strategy {@link BitmapStrategy#BITMAP_ARGB_8888} (default), {@link BitmapStrategy#BITMAP_RGB_565}
+     *                 or {@link BitmapStrategy#BITMAP_HARDWARE}.
+     */
+    public void setBitmapStrategy(int strategy) {
+        bitmapStrategy = strategy;
+        satValPanel.setBitmapStrategy(strategy);
+        huePanel.setBitmapStrategy(strategy);
+        if (shape == ColorShape.CIRCLE && wheelLut != null) {
+            updateWheel();
+        }
+        invalidate();
+    }
+
+    public int getBitmapStrategy() {
+        return bitmapStrategy;
+    }
+
+    /**
+     * Same as the cpv_colorShape attribute.
+     *
+     * @param shape {@link ColorShape#SQUARE} for the sat/val square and the hue slider,
+     *              {@link ColorShape#CIRCLE} for the hue/saturation wheel and the value slider.
+     */
+    public void setColorShape(@ColorShape int shape) {
+        if (this.shape != shape) {
+            this.shape = shape;
+            setUpRects();
+            invalidate();
+        }
+    }
+
+    @ColorShape
+    public int getColorShape() {
+        return shape;
+    }
+
+    /**
+     * Same as the cpv_alphaChannelVisible attribute.
+     */
+    public void setAlphaChannelVisible(boolean visible) {
+        if (showAlphaPanel != visible) {
+            showAlphaPanel = visible;
+            // The sliders take a different height.
+            requestLayout();
+            setUpRects();
+            invalidate();
+        }
+    }
+
+    /**
+     * Set how the changes made by touch are delivered to the listener.
+     *
+     * @param dispatchMode {@link FrameCoalescer#DISPATCH_IMMEDIATE} or {@link FrameCoalescer#DISPATCH_PER_FRAME}.
+     */
+    public void setDispatchMode(int dispatchMode) {
+        this.dispatchMode = dispatchMode;
+        if (dispatchMode == FrameCoalescer.DISPATCH_IMMEDIATE) {
+            coalescer.flush();
+        }
+    }
+
+    public int getDispatchMode() {
+        return dispatchMode;
+    }
+
+    /**
+     * With {@link FrameCoalescer#DISPATCH_PER_FRAME}, deliver the value the finger was
+     * lifted at right away instead of on the next frame. True by default.
+     */
+    public void setFlushOnRelease(boolean flushOnRelease) {
+        this.flushOnRelease = flushOnRelease;
+    }
+
+    public boolean isFlushOnRelease() {
+        return flushOnRelease;
+    }
+
+    /**
+     * Get the samples of the drags, with their velocity, along with the color changes made by touch.
+     * The samples are sat and val for the sat/val panel, hue and sat for the wheel, and the hue,
+     * the value or the alpha for the sliders.
+     * Follows the dispatch mode of the view.
+     */
+    public void setOnDragTrajectoryListener(DragTrajectoryListener listener) {
+        dragTrajectoryListener = listener;
+    }
+
+    /**
+     * @return the draw, rebuild and dispatch counts of this view, recorded while
+     * {@link PickerStats#setEnabled(boolean)} is on.
+     */
+    public PickerStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Bind the view to a color shared with other views. The view shows the state, and writes
+     * the color it edits to it, following the dispatch mode of the view.
+     * Unbind with null if the state outlives the view.
+     */
+    public void setState(ColorPickerState state) {
+        if (this.state != null) {
+            this.state.removeObserver(stateObserver);
+        }
+        this.state = state;
+        if (state != null) {
+            state.addObserver(stateObserver);
+            readState(ColorPickerState.CHANGED_ALL);
+            invalidate();
+        }
+    }
+
+    public ColorPickerState getState() {
+        return state;
+    }
+
+    /**
+     * Set a listener to get notified when the color selected by the user has changed.
+     *
+     * @param listener the listener
+     */
+    public void setOnColorChangedListener(ColorPickerChangedListener listener) {
+        colorChangedListener = listener;
+    }
+
+    /**
+     * Get the current color this view is showing.
+     *
+     * @return the current color.
+     */
+    public int getColor() {
+        return HsvMath.hsvToColor(alpha, hue, sat, val);
+    }
+
+    /**
+     * Set the color the view should show.
+     *
+     * @param color The color that should be selected. #argb
+     */
+    public void setColor(int color) {
+        setColor(color, false);
+    }
+
+    /**
+     * Set the color this view should show.
+     *
+     * @param color    The color that should be selected. #argb
+     * @param callback If you want to get a callback to your OnColorChangedListener.
+     */
+    public void setColor(int color, boolean callback) {
+        float[] hsv = hsvScratch;
+        HsvMath.colorToHsv(color, hsv);
+
+        alpha = Color.alpha(color);
+        hue = hsv[0];
+        sat = hsv[1];
+        val = hsv[2];
+        if (state != null) {
+            // Keeps the hue of gray colors and updates the other bound views.
+            state.setColor(color, this);
+            readState(ColorPickerState.CHANGED_ALL);
+        }
+        updateValueFilter();
+        if (callback && colorChangedListener != null) {
+            colorChangedListener.onColorChanged(envelope.set(getColor()), false);
+        }
+        invalidate();
+    }
+}
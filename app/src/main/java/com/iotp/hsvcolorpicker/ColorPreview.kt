@@ -5,32 +5,37 @@ import android.graphics.Color
 import android.text.Editable
 import android.text.TextWatcher
 import android.util.AttributeSet
-import android.util.Log
 import android.view.LayoutInflater
 import android.view.ViewGroup
 import android.widget.EditText
 import android.widget.LinearLayout
 import androidx.annotation.CheckResult
+import androidx.annotation.ColorInt
 import androidx.annotation.LayoutRes
 import androidx.appcompat.widget.AppCompatEditText
+import androidx.lifecycle.Lifecycle
 import androidx.lifecycle.ViewModelProvider
 import androidx.lifecycle.asLiveData
 import androidx.lifecycle.coroutineScope
 import androidx.lifecycle.findViewTreeLifecycleOwner
 import androidx.lifecycle.findViewTreeViewModelStoreOwner
-import com.iotp.hsvcolorpicker.utils.Constant
+import androidx.lifecycle.repeatOnLifecycle
+import com.iotp.hsvcolorpicker.engine.ColorEnvelope
+import com.iotp.hsvcolorpicker.engine.HexCodec
 import com.iotp.hsvcolorpicker.utils.CustomLifecycleOwner
 import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.FlowPreview
 import kotlinx.coroutines.channels.awaitClose
 import kotlinx.coroutines.flow.Flow
-import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.callbackFlow
-import kotlinx.coroutines.flow.catch
 import kotlinx.coroutines.flow.debounce
-import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.filterNotNull
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.flow.merge
 import kotlinx.coroutines.flow.onStart
 import kotlinx.coroutines.launch
-import kotlin.math.roundToInt
+import kotlin.math.ceil
+import kotlin.math.max
 
 
 class ColorPreview @JvmOverloads constructor(
@@ -40,9 +45,6 @@ class ColorPreview @JvmOverloads constructor(
     val customLifecycleOwner: CustomLifecycleOwner by lazy {
         CustomLifecycleOwner()
     }
-    private val hexFlow: MutableStateFlow<String>? by lazy {
-        MutableStateFlow("")
-    }
     private val viewModel: ColorPreviewViewModel by lazy {
         val factory = ColorPreviewViewModel.ColorPreviewViewModelFactory()
         ViewModelProvider(findViewTreeViewModelStoreOwner()!!, factory)
@@ -72,124 +74,45 @@ class ColorPreview @JvmOverloads constructor(
 
     var callBack = false
 
-    private val alphaTextChange: TextWatcher = object : TextWatcher {
-        override fun beforeTextChanged(s: CharSequence?, start: Int, count: Int, after: Int) {
-
-        }
-
-        override fun onTextChanged(s: CharSequence?, start: Int, before: Int, count: Int) {
-
-        }
-
-        override fun afterTextChanged(s: Editable?) {
-            if (s?.isNotEmpty() == true) {
-                if (viewModel.alphaValid(s.toString())) {
-                    val result = s.toString().toFloat().div(100).times(Constant.DEFAULT_ALPHA_VALUE)
-                    viewModel.alphaValue.postValue(result.roundToInt())
-                    callBack = true
-                    edtAlpha.setSelection(s.length)
-                }
-            }
-        }
-    }
-
-    private val redTextChange: TextWatcher = object : TextWatcher {
-        override fun beforeTextChanged(s: CharSequence?, start: Int, count: Int, after: Int) {
-
-        }
-
-        override fun onTextChanged(s: CharSequence?, start: Int, before: Int, count: Int) {
-
-        }
-
-        override fun afterTextChanged(s: Editable?) {
-            if (!s.isNullOrEmpty()) {
-                viewModel.redValue.postValue(s.toString().toInt())
-                callBack = true
-                edtRedColor.setSelection(s.length)
-            }
-        }
-    }
-
-    private val blueTextChange: TextWatcher = object : TextWatcher {
-        override fun beforeTextChanged(s: CharSequence?, start: Int, count: Int, after: Int) {
-
-        }
-
-        override fun onTextChanged(s: CharSequence?, start: Int, before: Int, count: Int) {
-
-        }
-
-        override fun afterTextChanged(s: Editable?) {
-            if (!s.isNullOrEmpty()) {
-                viewModel.blueValue.postValue(s.toString().toInt())
-                callBack = true
-                edtBlueColor.setSelection(s.length)
-            }
-        }
-
-    }
-
-    private val greenTextChange: TextWatcher = object : TextWatcher {
-        override fun beforeTextChanged(s: CharSequence?, start: Int, count: Int, after: Int) {
-
-        }
-
-        override fun onTextChanged(s: CharSequence?, start: Int, before: Int, count: Int) {
-
-        }
-
-        override fun afterTextChanged(s: Editable?) {
-            if (!s.isNullOrEmpty()) {
-                viewModel.greenValue.postValue(s.toString().toInt())
-                callBack = true
-                edtGreenColor.setSelection(s.length)
-            }
-        }
-    }
-
-    private val hexTextChange: TextWatcher = object : TextWatcher {
-        override fun beforeTextChanged(s: CharSequence?, start: Int, count: Int, after: Int) {
-
-        }
-
-        override fun onTextChanged(s: CharSequence?, start: Int, before: Int, count: Int) {
-
-        }
-
-        override fun afterTextChanged(s: Editable?) {
-            val hex = "#${s.toString()}"
-            if (viewModel.isValidHexColor(hex)) {
-                viewModel.hexColor.postValue(hex)
-                callBack = edtHexColor.isFocused
-            }
-        }
-    }
+    /* Text of the field being written by showColor, the longest is the 8 digits hex code. */
+    private val textBuffer = CharArray(8)
 
-    fun debounceHexColorSearch() {
+    /*
+     * Every field feeds one pipeline: the text is debounced per field, parsed into the color it
+     * describes and merged into a single color edit. Texts written by showColor() parse back
+     * to the shown color and are dropped there, so the fields need no watcher juggling.
+     */
+    @OptIn(ExperimentalCoroutinesApi::class)
+    private fun collectTextEdits() {
         customLifecycleOwner.lifecycle.coroutineScope.launch {
-            hexFlow
-                ?.debounce(300)?.distinctUntilChanged()?.catch { e ->
-                    Log.d("HexColorError", e.message.toString())
-                }?.asLiveData()?.observe(customLifecycleOwner) { s ->
-                    if (s.toIntOrNull() != null) {
-                        val result =
-                            s.toString().toFloat().div(100).times(Constant.DEFAULT_ALPHA_VALUE)
-                        viewModel.alphaValue.postValue(result.roundToInt())
+            customLifecycleOwner.repeatOnLifecycle(Lifecycle.State.STARTED) {
+                merge(
+                    edtHexColor.textChanges().colorEdits(HEX_DEBOUNCE_MS, viewModel::colorWithHex),
+                    edtAlpha.textChanges().colorEdits(CHANNEL_DEBOUNCE_MS, viewModel::colorWithAlphaPercent),
+                    edtRedColor.textChanges().colorEdits(CHANNEL_DEBOUNCE_MS, viewModel::colorWithRed),
+                    edtGreenColor.textChanges().colorEdits(CHANNEL_DEBOUNCE_MS, viewModel::colorWithGreen),
+                    edtBlueColor.textChanges().colorEdits(CHANNEL_DEBOUNCE_MS, viewModel::colorWithBlue)
+                ).collect { color ->
+                    if (color != viewModel.color.value) {
                         callBack = true
-                        edtAlpha.setSelection(s.length)
-                        Log.d("sss", s.toString())
+                        viewModel.setColor(color)
                     }
                 }
+            }
         }
     }
 
+    @OptIn(FlowPreview::class)
+    private fun Flow<CharSequence?>.colorEdits(
+        debounceMillis: Long,
+        parse: (CharSequence) -> Int
+    ): Flow<Int> = debounce(debounceMillis).filterNotNull().map(parse)
+
     init {
         setContentView(R.layout.cpv_color_preview)
         customLifecycleOwner.onCreate()
         findControl()
-        addTextChangeListener()
-        debounceHexColorSearch()
+        collectTextEdits()
     }
 
     override fun onAttachedToWindow() {
@@ -204,60 +127,35 @@ class ColorPreview @JvmOverloads constructor(
     }
 
     fun setInitColor(color: ColorEnvelope) {
-        removeTextChangeListener()
-        if (!edtHexColor.isFocused){
-            edtHexColor.setText(color.hexCode.orEmpty())
-        }
-        edtAlpha.setText(color.formatAlphaValue().toString())
-        edtAlpha.setSelection(edtAlpha.text?.length ?: 0)
-        edtBlueColor.setText(color.blueColor.toString())
-        edtBlueColor.setSelection(edtBlueColor.text?.length ?: 0)
-        edtRedColor.setText(color.redColor.toString())
-        edtRedColor.setSelection(edtRedColor.text?.length ?: 0)
-        edtGreenColor.setText(color.greenColor.toString())
-        edtGreenColor.setSelection(edtGreenColor.text?.length ?: 0)
-        colorPanelView.color = color.color
-        addTextChangeListener()
-    }
-
-
-    private fun updateRedColor(color: ColorEnvelope) {
-        edtRedColor.removeTextChangedListener(redTextChange)
-        edtRedColor.setText(color.redColor.toString())
-        viewModel.redValue.postValue(color.redColor)
         callBack = false
-        edtRedColor.addTextChangedListener(redTextChange)
+        viewModel.setColor(color.color)
+        showColor(color.color)
     }
 
-    private fun updateGreenColor(color: ColorEnvelope) {
-        edtGreenColor.removeTextChangedListener(greenTextChange)
-        edtGreenColor.setText(color.greenColor.toString())
-        callBack = false
-        viewModel.greenValue.postValue(color.greenColor)
-        edtGreenColor.addTextChangedListener(greenTextChange)
-    }
-
-    private fun updateBlueColor(color: ColorEnvelope) {
-        edtBlueColor.removeTextChangedListener(blueTextChange)
-        edtBlueColor.setText(color.blueColor.toString())
-        callBack = false
-        viewModel.blueValue.postValue(color.blueColor)
-        edtBlueColor.addTextChangedListener(blueTextChange)
+    /*
+     * Only the fields whose text differs from the color are written, from the reusable buffer.
+     * The widths of the fields are reserved in findControl(), so a write only invalidates the
+     * field and a drag does not lay out the preview again.
+     */
+    private fun showColor(@ColorInt color: Int) {
+        if (!edtHexColor.isFocused) {
+            edtHexColor.setTextIfChanged(textBuffer, HexCodec.encodeArgb(color, textBuffer, 0))
+        }
+        val alphaPercent = ColorPreviewViewModel.alphaPercent(Color.alpha(color))
+        edtAlpha.setTextIfChanged(textBuffer, formatInt(alphaPercent, textBuffer))
+        edtRedColor.setTextIfChanged(textBuffer, formatInt(Color.red(color), textBuffer))
+        edtGreenColor.setTextIfChanged(textBuffer, formatInt(Color.green(color), textBuffer))
+        edtBlueColor.setTextIfChanged(textBuffer, formatInt(Color.blue(color), textBuffer))
+        colorPanelView.color = color
     }
 
-    private fun updateAlphaColor(color: ColorEnvelope) {
-        edtAlpha.removeTextChangedListener(alphaTextChange)
-        edtAlpha.setText(color.formatAlphaValue())
-        callBack = false
-        viewModel.alphaValue.postValue(color.alphaColor)
-        edtAlpha.addTextChangedListener(alphaTextChange)
-    }
 
+    /**
+     * Show a color set by the pickers, the listener is not called back.
+     */
     fun updateColor(color: ColorEnvelope) {
-        updateAlphaColor(color)
-        updateRedColor(color)
-        updateGreenColor(color)
-        updateBlueColor(color)
+        callBack = false
+        viewModel.setColor(color.color)
     }
 
     private fun findControl() {
@@ -265,47 +163,88 @@ class ColorPreview @JvmOverloads constructor(
         edtRedColor.filters = arrayOf(InputFilterMinMax(0, 255))
         edtGreenColor.filters = arrayOf(InputFilterMinMax(0, 255))
         edtBlueColor.filters = arrayOf(InputFilterMinMax(0, 255))
+        reserveWidth(edtAlpha, 3, DECIMAL_DIGITS)
+        reserveWidth(edtRedColor, 3, DECIMAL_DIGITS)
+        reserveWidth(edtGreenColor, 3, DECIMAL_DIGITS)
+        reserveWidth(edtBlueColor, 3, DECIMAL_DIGITS)
+        reserveWidth(edtHexColor, 8, HEX_DIGITS)
+    }
 
+    /*
+     * Fix the width of a field to its widest possible text or its hint. A TextView of fixed
+     * width only requests a layout when the height of its text changes.
+     */
+    private fun reserveWidth(field: EditText, maxLength: Int, digits: String) {
+        val paint = field.paint
+        var digitWidth = 0f
+        for (i in digits.indices) {
+            digitWidth = max(digitWidth, paint.measureText(digits, i, i + 1))
+        }
+        val hint = field.hint
+        val hintWidth = if (hint == null) 0f else paint.measureText(hint, 0, hint.length)
+        val textWidth = max(digitWidth * maxLength, hintWidth)
+        field.width = max(
+            ceil(textWidth).toInt() + field.compoundPaddingLeft + field.compoundPaddingRight,
+            field.minWidth
+        )
     }
 
     private fun observeData() {
         findViewTreeLifecycleOwner()?.let { owner ->
-            viewModel.color.observe(owner) {
-                setInitColor(ColorEnvelope(it))
+            // A StateFlow is conflated, a drag shows only the latest color of each frame.
+            viewModel.color.asLiveData().observe(owner) {
+                showColor(it)
                 if (callBack) {
                     onColorChange?.invoke(it)
                 }
             }
-
-            viewModel.hexColor.observe(owner) {
-                val color = viewModel.parseHexColorToInt(it)
-                //Color.parseColor(it)
-                setInitColor(ColorEnvelope(color))
-                if (callBack) {
-                    onColorChange?.invoke(color)
-                }
-            }
         }
     }
+}
 
-    private fun addTextChangeListener() {
-        edtAlpha.addTextChangedListener(alphaTextChange)
-        edtRedColor.addTextChangedListener(redTextChange)
-        edtGreenColor.addTextChangedListener(greenTextChange)
-        edtBlueColor.addTextChangedListener(blueTextChange)
-        edtHexColor.addTextChangedListener(hexTextChange)
 
+private const val HEX_DEBOUNCE_MS = 300L
+private const val CHANNEL_DEBOUNCE_MS = 150L
+private const val DECIMAL_DIGITS = "0123456789"
+private const val HEX_DIGITS = "0123456789ABCDEF"
+
+/**
+ * Write the digits of a non negative value at the start of the buffer.
+ *
+ * @return the number of digits written.
+ */
+private fun formatInt(value: Int, out: CharArray): Int {
+    var length = 1
+    var rest = value / 10
+    while (rest > 0) {
+        length++
+        rest /= 10
     }
-
-    private fun removeTextChangeListener() {
-        edtAlpha.removeTextChangedListener(alphaTextChange)
-        edtRedColor.removeTextChangedListener(redTextChange)
-        edtGreenColor.removeTextChangedListener(greenTextChange)
-        edtBlueColor.removeTextChangedListener(blueTextChange)
-        edtHexColor.removeTextChangedListener(hexTextChange)
+    rest = value
+    for (i in length - 1 downTo 0) {
+        out[i] = '0' + rest % 10
+        rest /= 10
     }
+    return length
 }
 
+/**
+ * Set the text only if it differs from the current one, the cursor is moved to the end.
+ */
+private fun EditText.setTextIfChanged(chars: CharArray, length: Int) {
+    val current = text
+    if (current != null && current.length == length) {
+        var i = 0
+        while (i < length && current[i] == chars[i]) {
+            i++
+        }
+        if (i == length) {
+            return
+        }
+    }
+    setText(chars, 0, length)
+    setSelection(length)
+}
 
 fun ViewGroup.setContentView(@LayoutRes id: Int) {
     LayoutInflater.from(context).inflate(id, this, true)
@@ -2,49 +2,73 @@ package com.iotp.hsvcolorpicker
 
 import android.graphics.Color
 import android.util.Log
-import androidx.lifecycle.MediatorLiveData
-import androidx.lifecycle.MutableLiveData
+import androidx.annotation.ColorInt
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.ViewModelProvider
+import com.iotp.hsvcolorpicker.engine.HexCodec
+import com.iotp.hsvcolorpicker.utils.Constant
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.update
+import kotlin.math.ceil
+import kotlin.math.roundToInt
 
 class ColorPreviewViewModel : ViewModel() {
 
-    val alphaValue = MutableLiveData<Int>()
-    val redValue = MutableLiveData<Int>()
-    val greenValue = MutableLiveData<Int>()
-    val blueValue = MutableLiveData<Int>()
-    val hexColor = MutableLiveData<String>()
-    val color = MediatorLiveData<Int>().apply {
-        addSource(alphaValue) {
-            postValue(createColor())
-        }
-        addSource(redValue) {
-            postValue(createColor())
-        }
-        addSource(greenValue) {
-            postValue(createColor())
-        }
-        addSource(blueValue) {
-            postValue(createColor())
-        }
+    /*
+     * The whole ARGB color in one value. A channel edit replaces it atomically, so collectors
+     * never see a half updated color, and equal colors are not emitted again.
+     */
+    private val _color = MutableStateFlow(Color.BLACK)
+    val color: StateFlow<Int> = _color.asStateFlow()
+
+    fun setColor(@ColorInt color: Int) {
+        _color.value = color
     }
 
-    private fun createColor(): Int {
-        return Color.argb(
-            alphaValue.value?.toInt() ?: 0,
-            redValue.value ?: 0,
-            greenValue.value ?: 0,
-            blueValue.value ?: 0
-        )
+    fun setAlpha(alpha: Int) = setChannel(24, alpha)
+
+    fun setRed(red: Int) = setChannel(16, red)
+
+    fun setGreen(green: Int) = setChannel(8, green)
+
+    fun setBlue(blue: Int) = setChannel(0, blue)
+
+    private fun setChannel(shift: Int, value: Int) {
+        _color.update { withChannel(it, shift, value) }
+    }
+
+    /*
+     * The text edits of the preview fields. Each returns the current color with the edit
+     * applied, or the current color itself if the text is not a valid value. A text showing the
+     * current value, e.g. written back by the preview, also returns the current color.
+     */
+
+    fun colorWithHex(text: CharSequence): Int {
+        val color = HexCodec.parse(text)
+        return if (color == HexCodec.INVALID) _color.value else color.toInt()
     }
 
-    fun createColorFromHex() {
-        val color = Color.parseColor(hexColor.toString())
+    fun colorWithAlphaPercent(text: CharSequence): Int {
+        val percent = parseDecimal(text, 100)
+        val color = _color.value
+        // The percent shown is rounded up, so parsing it back may not give the same alpha.
+        if (percent < 0 || percent == alphaPercent(color ushr 24)) {
+            return color
+        }
+        return withChannel(color, 24, (percent / 100f * Constant.DEFAULT_ALPHA_VALUE).roundToInt())
     }
 
-    fun alphaValid(input: String): Boolean {
-        val number = input.toInt()
-        return number in 1..99
+    fun colorWithRed(text: CharSequence): Int = colorWithChannel(text, 16)
+
+    fun colorWithGreen(text: CharSequence): Int = colorWithChannel(text, 8)
+
+    fun colorWithBlue(text: CharSequence): Int = colorWithChannel(text, 0)
+
+    private fun colorWithChannel(text: CharSequence, shift: Int): Int {
+        val value = parseDecimal(text, 255)
+        return if (value < 0) _color.value else withChannel(_color.value, shift, value)
     }
 
     private fun hexColorValid(colorString: String): Boolean {
@@ -56,37 +80,56 @@ class ColorPreviewViewModel : ViewModel() {
         }
     }
 
-    fun isValidHexColor(color: String): Boolean {
-        val hexColorRegex = Regex("^#([A-Fa-f0-9]{6}|[A-Fa-f0-9]{8})$")
-        val result = parseHexColorToInt(color)
-        //hexColorRegex.matches(color) && hexColorValid(color)
-        return result != -1
+    fun isValidHexColor(color: CharSequence): Boolean {
+        return HexCodec.parse(color) != HexCodec.INVALID
     }
 
-    fun parseHexColorToInt(hexColor: String): Int {
-        val sanitizedHexColor = hexColor.trimStart('#')
-        val hexLength = sanitizedHexColor.length
-
-        if (hexLength != 3 && hexLength != 6) {
+    fun parseHexColorToInt(hexColor: CharSequence): Int {
+        val color = HexCodec.parse(hexColor)
+        if (color == HexCodec.INVALID) {
             Log.e("InValid hex color","Invalid hex color format")
         }
+        return color.toInt()
+    }
+
+
+    companion object {
 
-        val hex = if (hexLength == 3) {
-            sanitizedHexColor.map { "$it$it" }.joinToString("")
-        } else {
-            sanitizedHexColor
+        /**
+         * The alpha shown in percent, rounded up like ColorEnvelope.formatAlphaValue().
+         */
+        fun alphaPercent(alpha: Int): Int {
+            return ceil(alpha / Constant.DEFAULT_ALPHA_VALUE.toDouble() * 100).toInt()
         }
 
-        return try {
-            hex.toInt(16)
-        } catch (e: NumberFormatException) {
-            Log.e("InValid hex color","Invalid hex color format")
-            return  -1
+        private fun withChannel(color: Int, shift: Int, value: Int): Int {
+            return (color and (0xFF shl shift).inv()) or ((value and 0xFF) shl shift)
+        }
 
+        /**
+         * Parse a decimal value without allocating.
+         *
+         * @return the value, or -1 if the text is empty, not only digits or above max.
+         */
+        fun parseDecimal(text: CharSequence, max: Int): Int {
+            if (text.isEmpty()) {
+                return -1
+            }
+            var value = 0
+            for (i in text.indices) {
+                val digit = text[i] - '0'
+                if (digit !in 0..9) {
+                    return -1
+                }
+                value = value * 10 + digit
+                if (value > max) {
+                    return -1
+                }
+            }
+            return value
         }
     }
 
-
     class ColorPreviewViewModelFactory() : ViewModelProvider.Factory {
         override fun <T : ViewModel> create(modelClass: Class<T>): T {
             if (modelClass.isAssignableFrom(ColorPreviewViewModel::class.java)) {
@@ -0,0 +1,71 @@
+package com.iotp.hsvcolorpicker;
+
+import android.view.Choreographer;
+
+/**
+ * Coalesces the color changes of a picker view into at most one listener call per frame.
+ * <p>
+ * Touch digitizers often report several events per frame, each one moving the thumb. With
+ * {@link #DISPATCH_PER_FRAME} the view only records the new value and the listener is called
+ * once, on the next Choreographer frame, with the latest value. Frame callbacks run before the
+ * traversal, so the views updated by the listener are still drawn in that frame.
+ * Must be used from the main thread.
+ */
+public final class FrameCoalescer implements Choreographer.FrameCallback {
+
+    /** The listener is called for every change, default. */
+    public final static int DISPATCH_IMMEDIATE = 0;
+    /** The listener is called at most once per frame. */
+    public final static int DISPATCH_PER_FRAME = 1;
+
+    private final Runnable dispatch;
+    private boolean pending;
+
+    /**
+     * @param dispatch calls the listener with the current value of the view.
+     */
+    public FrameCoalescer(Runnable dispatch) {
+        this.dispatch = dispatch;
+    }
+
+    /**
+     * Dispatch on the next frame, does nothing if a dispatch is already scheduled.
+     */
+    public void post() {
+        if (!pending) {
+            pending = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    /**
+     * Dispatch now if a dispatch is scheduled, e.g. for the final value of a drag.
+     */
+    public void flush() {
+        if (pending) {
+            Choreographer.getInstance().removeFrameCallback(this);
+            pending = false;
+            dispatch.run();
+        }
+    }
+
+    /**
+     * Drop the scheduled dispatch.
+     */
+    public void cancel() {
+        if (pending) {
+            Choreographer.getInstance().removeFrameCallback(this);
+            pending = false;
+        }
+    }
+
+    public boolean isPending() {
+        return pending;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        pending = false;
+        dispatch.run();
+    }
+}
@@ -0,0 +1,172 @@
+package com.iotp.hsvcolorpicker;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Process wide cache of the gradient bitmaps drawn by the picker views.
+ * <p>
+ * Several pickers of the same size (or the same picker recreated after a rotation) draw
+ * identical gradients, so they are built once and shared. Bitmaps handed out by this cache
+ * are shared between views and must never be drawn into once they have been put.
+ * The cache is bounded in bytes and shrinks when the system asks the app to trim memory.
+ */
+public final class GradientCache implements ComponentCallbacks2 {
+
+    public static final int KIND_SAT_VAL = 0;
+    public static final int KIND_HUE = 1;
+    public static final int KIND_ALPHA_PATTERN = 2;
+    public static final int KIND_WHEEL = 3;
+
+    private static final GradientCache INSTANCE = new GradientCache(defaultMaxBytes());
+
+    private final LruCache<Key, Bitmap> cache;
+    private final AtomicBoolean attached = new AtomicBoolean(false);
+
+    private GradientCache(int maxBytes) {
+        cache = new LruCache<Key, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(Key key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+        };
+    }
+
+    public static GradientCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Register the cache for memory trim callbacks. Safe to call from every view, only the
+     * first call registers.
+     */
+    public void attach(Context context) {
+        if (attached.compareAndSet(false, true)) {
+            context.getApplicationContext().registerComponentCallbacks(this);
+        }
+    }
+
+    /**
+     * @return the cached bitmap or null if it has to be built.
+     */
+    public Bitmap get(Key key) {
+        return cache.get(key);
+    }
+
+    public void put(Key key, Bitmap bitmap) {
+        cache.put(key, bitmap);
+    }
+
+    public void clear() {
+        cache.evictAll();
+    }
+
+    public int hitCount() {
+        return cache.hitCount();
+    }
+
+    public int missCount() {
+        return cache.missCount();
+    }
+
+    public int evictionCount() {
+        return cache.evictionCount();
+    }
+
+    /**
+     * @return the number of bytes held by the cached bitmaps.
+     */
+    public int sizeBytes() {
+        return cache.size();
+    }
+
+    public int maxSizeBytes() {
+        return cache.maxSize();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_MODERATE || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            cache.evictAll();
+        } else if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_LOW) {
+            cache.trimToSize(cache.maxSize() / 2);
+        }
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+    }
+
+    @Override
+    public void onLowMemory() {
+        cache.evictAll();
+    }
+
+    private static int defaultMaxBytes() {
+        // An eighth of the heap, a 1440x1440 ARGB_8888 panel is about 8MB.
+        return (int) Math.min(Runtime.getRuntime().maxMemory() / 8, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Identifies one gradient bitmap.
+     */
+    public static final class Key {
+        private final int kind;
+        private final int width;
+        private final int height;
+        private final Bitmap.Config config;
+        private final int cornerRadius;
+        private final float hue;
+        private final int detail;
+
+        /**
+         * @param kind         one of the KIND_ constants.
+         * @param config       config of the bitmap.
+         * @param cornerRadius radius of the corners baked in the bitmap, 0 if none.
+         * @param hue          hue bucket the bitmap was drawn with, 0 if it does not depend on it.
+         * @param detail       kind specific parameter, e.g. the checker cell size of the alpha pattern.
+         */
+        public Key(int kind, int width, int height, Bitmap.Config config, int cornerRadius, float hue, int detail) {
+            this.kind = kind;
+            this.width = width;
+            this.height = height;
+            this.config = config;
+            this.cornerRadius = cornerRadius;
+            this.hue = hue;
+            this.detail = detail;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return kind == key.kind
+                    && width == key.width
+                    && height == key.height
+                    && cornerRadius == key.cornerRadius
+                    && Float.compare(hue, key.hue) == 0
+                    && detail == key.detail
+                    && config == key.config;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = kind;
+            result = 31 * result + width;
+            result = 31 * result + height;
+            result = 31 * result + (config != null ? config.hashCode() : 0);
+            result = 31 * result + cornerRadius;
+            result = 31 * result + Float.floatToIntBits(hue);
+            result = 31 * result + detail;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.iotp.hsvcolorpicker;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.view.View;
+
+import com.iotp.hsvcolorpicker.engine.GradientRasterizer;
+import com.iotp.hsvcolorpicker.engine.PickerGeometry;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Draws the hue slider and maps touches on it, shared by {@link HueView} and {@link ColorPickerView}.
+ * <p>
+ * The spectrum only depends on the size and the config, it comes from the {@link GradientCache}
+ * and is shared with every other slider of the same size. In async mode it is drawn on the raster
+ * thread and the host view is invalidated when it is ready.
+ */
+final class HuePanel {
+
+    /**
+     * The width in pixels of the border
+     * surrounding the slider.
+     */
+    private final static int BORDER_WIDTH_PX = 1;
+
+    private final View host;
+    private final PickerStats stats;
+    private final GradientCache gradientCache = GradientCache.getInstance();
+    private final RectF rect = new RectF();
+    private final RectF borderRect = new RectF();
+    private float round;
+    private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    /* The spectrum drawn last, and its shader, only rebuilt for a new spectrum or size. */
+    private Bitmap spectrum;
+    private BitmapShader shader;
+    private final Matrix shaderMatrix = new Matrix();
+
+    private final AsyncRasterizer rasterizer = new AsyncRasterizer();
+    private boolean asyncRendering = false;
+    private int bitmapStrategy = BitmapStrategy.BITMAP_ARGB_8888;
+
+    HuePanel(View host, PickerStats stats) {
+        this.host = host;
+        this.stats = stats;
+    }
+
+    /**
+     * Set the bounds of the slider, in the coordinates of the host. The border is drawn around them.
+     *
+     * @param round radius of the rounded ends.
+     */
+    void setBounds(float left, float top, float right, float bottom, float round) {
+        rect.set(left, top, right, bottom);
+        borderRect.set(left - BORDER_WIDTH_PX, top - BORDER_WIDTH_PX, right + BORDER_WIDTH_PX,
+                bottom + BORDER_WIDTH_PX);
+        this.round = round;
+        shader = null;
+        // In async mode the old spectrum is kept and scaled until the new one is ready.
+        if (!asyncRendering) {
+            spectrum = null;
+        }
+    }
+
+    RectF getBounds() {
+        return rect;
+    }
+
+    /**
+     * Draw the border and the spectrum, everything but the thumb.
+     */
+    void draw(Canvas canvas, Paint borderPaint) {
+        if (BORDER_WIDTH_PX > 0) {
+            canvas.drawRoundRect(borderRect, round, round, borderPaint);
+        }
+        final int width = (int) rect.width();
+        final int height = (int) rect.height();
+        final Bitmap.Config config = BitmapStrategy.resolveConfig(bitmapStrategy, canvas);
+        if (spectrum == null || spectrum.getWidth() != width || spectrum.getHeight() != height
+                || spectrum.getConfig() != config) {
+            update(width, height, config);
+        }
+        if (spectrum == null) {
+            // Async mode, nothing generated yet.
+            return;
+        }
+        if (shader == null) {
+            // The spectrum is scaled while an async one of the new size is generated.
+            shader = new BitmapShader(spectrum, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+            shaderMatrix.setScale(rect.width() / spectrum.getWidth(), rect.height() / spectrum.getHeight());
+            shaderMatrix.postTranslate(rect.left, rect.top);
+            shader.setLocalMatrix(shaderMatrix);
+            paint.setShader(shader);
+        }
+        canvas.drawRoundRect(rect, round, round, paint);
+    }
+
+    /**
+     * @return the spectrum drawn last, null before the first draw.
+     */
+    Bitmap getSpectrum() {
+        return spectrum;
+    }
+
+    boolean contains(float x, float y) {
+        return rect.contains(x, y);
+    }
+
+    float hueAt(float x) {
+        return PickerGeometry.xToHue(x - rect.left, rect.width());
+    }
+
+    float hueToX(float hue) {
+        return rect.left + PickerGeometry.hueToX(hue, rect.width());
+    }
+
+    /**
+     * Drop the spectrum being generated, called when the host is detached.
+     */
+    void cancel() {
+        rasterizer.cancel();
+    }
+
+    private void update(final int width, final int height, final Bitmap.Config config) {
+        // The spectrum only depends on the size and the config, every slider of
+        // the same size shares the same bitmap.
+        final GradientCache.Key key = new GradientCache.Key(GradientCache.KIND_HUE, width, height,
+                config, 0, 0f, 0);
+        Bitmap bitmap = gradientCache.get(key);
+        if (bitmap == null) {
+            stats.countCacheMiss();
+        } else {
+            stats.countCacheHit();
+        }
+        if (bitmap == null && asyncRendering) {
+            // Keep drawing the current spectrum, the new one is swapped in when ready.
+            if (!rasterizer.isPending(key)) {
+                rasterizer.submit(key, new AsyncRasterizer.Producer() {
+                    @Override
+                    public Bitmap produce() {
+                        final long rebuildStart = stats.beginRebuild();
+                        Bitmap spectrum = createBitmap(width, height, config);
+                        stats.endRebuild(rebuildStart);
+                        gradientCache.put(key, spectrum);
+                        return spectrum;
+                    }
+                }, new AsyncRasterizer.Consumer() {
+                    @Override
+                    public void onBitmapReady(Bitmap spectrum) {
+                        setSpectrum(spectrum);
+                        host.invalidate();
+                    }
+                });
+            }
+            return;
+        }
+        if (bitmap == null) {
+            final long rebuildStart = stats.beginRebuild();
+            bitmap = createBitmap(width, height, config);
+            stats.endRebuild(rebuildStart);
+            gradientCache.put(key, bitmap);
+        }
+        rasterizer.cancel();
+        setSpectrum(bitmap);
+    }
+
+    private void setSpectrum(Bitmap bitmap) {
+        spectrum = bitmap;
+        shader = null;
+    }
+
+    /**
+     * Only uses local objects so it can run on the raster thread.
+     */
+    private static Bitmap createBitmap(int width, int height, Bitmap.Config config) {
+        // Compute the gradient in a plain buffer and upload it in one call
+        // instead of one setPixel per pixel.
+        int[] pixels = new int[width * height];
+        GradientRasterizer.fillHue(pixels, width, height, ForkJoinPool.commonPool(),
+                GradientRasterizer.DEFAULT_PARALLEL_THRESHOLD);
+        return BitmapStrategy.createBitmap(pixels, width, height, config);
+    }
+
+    void setBitmapStrategy(int strategy) {
+        bitmapStrategy = strategy;
+    }
+
+    int getBitmapStrategy() {
+        return bitmapStrategy;
+    }
+
+    void setAsyncRendering(boolean async) {
+        asyncRendering = async;
+        if (!async) {
+            rasterizer.cancel();
+        }
+    }
+
+    boolean isAsyncRendering() {
+        return asyncRendering;
+    }
+}
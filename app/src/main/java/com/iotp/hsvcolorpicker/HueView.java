@@ -1,7 +1,6 @@
 package com.iotp.hsvcolorpicker;
 
 import android.content.Context;
-import android.content.res.Resources;
 import android.content.res.TypedArray;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
@@ -9,7 +8,9 @@ import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.Point;
+import android.graphics.Rect;
 import android.graphics.RectF;
+import android.os.Build;
 import android.os.Bundle;
 import android.os.Parcelable;
 import android.util.AttributeSet;
@@ -18,9 +19,13 @@ import android.util.TypedValue;
 import android.view.MotionEvent;
 import android.view.View;
 
-import androidx.core.graphics.drawable.RoundedBitmapDrawable;
-import androidx.core.graphics.drawable.RoundedBitmapDrawableFactory;
+import androidx.annotation.RequiresApi;
 
+import com.iotp.hsvcolorpicker.engine.ColorEnvelope;
+import com.iotp.hsvcolorpicker.engine.ColorPickerState;
+import com.iotp.hsvcolorpicker.engine.DragTrajectory;
+import com.iotp.hsvcolorpicker.engine.HsvMath;
+import com.iotp.hsvcolorpicker.event.DragTrajectoryListener;
 import com.iotp.hsvcolorpicker.event.HueColorChangedListener;
 import com.iotp.hsvcolorpicker.utils.Constant;
 import com.iotp.hsvcolorpicker.utils.DrawingUtils;
@@ -44,8 +49,41 @@ public class HueView extends View {
      * We can reuse it when the user is sliding the circle picker as long as the hue isn't changed.
      */
 
-    /* We cache the hue background to since its also very expensive now. */
-    private BitmapCache hueBackgroundCache;
+    private final FrameCoalescer coalescer = new FrameCoalescer(new Runnable() {
+        @Override
+        public void run() {
+            notifyColorChanged();
+        }
+    });
+    private int dispatchMode = FrameCoalescer.DISPATCH_IMMEDIATE;
+    private boolean flushOnRelease = true;
+    private final PickerStats stats = new PickerStats("HueView");
+    /* Draws the spectrum and maps the touches, shared with ColorPickerView. */
+    private final HuePanel huePanel = new HuePanel(this, stats);
+    /* Background recorded in a RenderNode on API 29+, and the spectrum it was recorded with. */
+    private StaticLayer staticLayer;
+    private Bitmap layerSpectrum;
+    /* Thumb bounds as last drawn, empty until the first draw. */
+    private final Rect thumbBounds = new Rect();
+    private final Rect dirtyBounds = new Rect();
+    private final Point thumbPoint = new Point();
+    private final Point dirtyPoint = new Point();
+    /* Samples of the current drag, see DragTrajectory. */
+    private final DragTrajectory trajectory = new DragTrajectory();
+    private DragTrajectoryListener dragTrajectoryListener;
+    /* Shared color when bound, see setState. */
+    private ColorPickerState state;
+    private final ColorPickerState.Observer stateObserver = new ColorPickerState.Observer() {
+        @Override
+        public void onStateChanged(ColorPickerState state, int changes, Object source) {
+            // Changes made by this view are already drawn.
+            if (source != HueView.this) {
+                readState(changes);
+                // The spectrum never changes, only the thumb position and color.
+                invalidateThumb();
+            }
+        }
+    };
 
     /* Current values */
     private int alpha = Constant.DEFAULT_ALPHA_VALUE;
@@ -54,6 +92,7 @@ public class HueView extends View {
     private float val = 1f;
     private int sliderTrackerColor = DEFAULT_SLIDER_COLOR;
     private int borderColor = DEFAULT_BORDER_COLOR;
+    private final float[] hsvScratch = new float[3];
 
     /**
      * The Rect in which we are allowed to draw.
@@ -62,12 +101,13 @@ public class HueView extends View {
      */
     private RectF drawingRect;
 
-    private RectF hueRect;
 
     private Point startTouchPoint = null;
 
     private boolean callBack = false;
     private HueColorChangedListener hueColorChangedListener;
+    /* Reused for every callback, see ColorEnvelope. */
+    private final ColorEnvelope envelope = new ColorEnvelope(0);
 
     public HueView(Context context) {
         this(context, null);
@@ -113,10 +153,15 @@ public class HueView extends View {
     private void init(Context context, AttributeSet attrs) {
         //Load those if set in xml resource file.
         TypedArray a = getContext().obtainStyledAttributes(attrs, R.styleable.HueView);
+        huePanel.setAsyncRendering(a.getBoolean(R.styleable.HueView_asyncRendering, false));
+        huePanel.setBitmapStrategy(a.getInt(R.styleable.HueView_bitmapStrategy, BitmapStrategy.BITMAP_RGB_565));
+        dispatchMode = a.getInt(R.styleable.HueView_dispatchMode, FrameCoalescer.DISPATCH_IMMEDIATE);
+        flushOnRelease = a.getBoolean(R.styleable.HueView_flushOnRelease, true);
 
         //borderColor = a.getColor(R.styleable.ColorPickerView_cpv_borderColor, 0xFF6E6E6E);
         a.recycle();
         applyThemeColors(context);
+        GradientCache.getInstance().attach(context);
         initPaintTools();
 
         //Needed for receiving trackball motion events.
@@ -154,72 +199,76 @@ public class HueView extends View {
         if (drawingRect.width() <= 0 || drawingRect.height() <= 0) {
             return;
         }
+        stats.beginDraw();
         drawHuePanel(canvas);
+        stats.endDraw();
     }
 
     private void drawHuePanel(Canvas canvas) {
-        final RectF rect = hueRect;
-        final RectF drawnRecF = new RectF(
-                rect.left - BORDER_WIDTH_PX, rect.top - BORDER_WIDTH_PX, rect.right + BORDER_WIDTH_PX,
-                rect.bottom + BORDER_WIDTH_PX);
-        if (BORDER_WIDTH_PX > 0) {
-            borderPaint.setColor(borderColor);
-            canvas.drawRoundRect(drawnRecF, roundPx, roundPx, borderPaint);
+        if (StaticLayer.canDraw(canvas)) {
+            drawStaticLayer(canvas);
+        } else {
+            drawHueBackground(canvas);
         }
-        int width = (int) rect.width();
-        int height = (int) rect.height();
-        if (hueBackgroundCache == null) {
-            hueBackgroundCache = new BitmapCache();
-            hueBackgroundCache.bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
-            hueBackgroundCache.canvas = new Canvas(hueBackgroundCache.bitmap);
-
-            for (int x = 0; x < width; x++) {
-                float hue = 0;
-                if (rect.width() > height) {
-                    hue = (x * 360f) / width;
-                }
-                for (int y = 0; y < height; y++) {
-                    if (width <= height) {
-                        hue = (y * 360f) / height;
-                    }
-                    float[] hsv = new float[]{hue, 1, 1};
-                    hueBackgroundCache.bitmap.setPixel(x, y, Color.HSVToColor(hsv));
+        drawThumb(canvas);
+    }
+
+    /* Border and spectrum, everything but the thumb. */
+    private void drawHueBackground(Canvas canvas) {
+        borderPaint.setColor(borderColor);
+        huePanel.draw(canvas, borderPaint);
+    }
+
+    /**
+     * Replay the recorded background, it is only recorded again when the spectrum bitmap changed.
+     */
+    @RequiresApi(Build.VERSION_CODES.Q)
+    private void drawStaticLayer(Canvas canvas) {
+        if (staticLayer == null) {
+            staticLayer = new StaticLayer("HueView", new StaticLayer.Recorder() {
+                @Override
+                public void record(Canvas canvas) {
+                    drawHueBackground(canvas);
                 }
-            }
+            });
         }
+        if (layerSpectrum != huePanel.getSpectrum()) {
+            staticLayer.invalidate();
+        }
+        staticLayer.draw(canvas, getWidth(), getHeight());
+        // Recording may have swapped the spectrum in.
+        layerSpectrum = huePanel.getSpectrum();
+    }
 
-        Resources res = getResources();
-        RoundedBitmapDrawable dr =
-                RoundedBitmapDrawableFactory.create(res, hueBackgroundCache.bitmap);
-        dr.setCornerRadius(roundPx);
-        dr.setBounds((int) drawnRecF.left, (int) drawnRecF.top, (int) drawnRecF.right, (int) drawnRecF.bottom);
-        dr.draw(canvas);
-        DrawingUtils.drawnThumb(canvas, hueToPoint(hue), thumbPaint, drawingRect.height(), getColor());
+    private void drawThumb(Canvas canvas) {
+        Point p = hueToPoint(hue, thumbPoint);
+        DrawingUtils.drawnThumb(canvas, p, thumbPaint, drawingRect.height(), getColor());
+        DrawingUtils.thumbBounds(p, drawingRect.height(), thumbBounds);
     }
 
     /**
-     * P(x) = hue * width / 360
+     * Invalidate only where the thumb was drawn and where it is drawn next, the panel under it
+     * did not change. This saves the fill work of software layers. On hardware accelerated
+     * windows the framework computes the damaged area itself and ignores the rect.
      */
-    private Point hueToPoint(float hue) {
-        final RectF rect = hueRect;
-        Point p = new Point();
-        float x = hue * rect.width() / 360;
-        p.x = (int) x;
-        p.y = (int) rect.centerY();
+    private void invalidateThumb() {
+        if (thumbBounds.isEmpty()) {
+            invalidate();
+            return;
+        }
+        DrawingUtils.thumbBounds(hueToPoint(hue, dirtyPoint), drawingRect.height(), dirtyBounds);
+        dirtyBounds.union(thumbBounds);
+        invalidate(dirtyBounds);
+    }
+
+    private Point hueToPoint(float hue, Point p) {
+        p.x = (int) huePanel.hueToX(hue);
+        p.y = (int) huePanel.getBounds().centerY();
         return p;
     }
 
-    /**
-     * hue = P(x) * 360 / width
-     */
     private float pointToHue(float x) {
-        hue = x * 360f / hueRect.width();
-        if (hue < 0) {
-            hue = 0;
-        } else if (hue > 360) {
-            hue = 360;
-        }
-        return hue;
+        return huePanel.hueAt(x);
     }
 
     @Override
@@ -230,6 +279,7 @@ public class HueView extends View {
 
             case MotionEvent.ACTION_DOWN:
                 startTouchPoint = new Point((int) event.getX(), (int) event.getY());
+                trajectory.reset();
                 update = moveTrackersIfNeeded(event);
                 break;
             case MotionEvent.ACTION_MOVE:
@@ -242,7 +292,8 @@ public class HueView extends View {
         }
 
         if (update) {
-            invalidate();
+            dispatchColorChange(event.getAction() == MotionEvent.ACTION_UP);
+            invalidateThumb();
             return true;
         }
 
@@ -257,17 +308,73 @@ public class HueView extends View {
         int startX = startTouchPoint.x;
         int startY = startTouchPoint.y;
 
-        if (hueRect.contains(startX, startY)) {
-            hue = pointToHue(event.getX());
-            if (hueColorChangedListener != null) {
-                hueColorChangedListener.onHueChanged(new ColorEnvelope(getColor()));
+        if (huePanel.contains(startX, startY)) {
+            // Samples batched by the system since the previous event, oldest first.
+            final int historySize = event.getHistorySize();
+            for (int h = 0; h < historySize; h++) {
+                trajectory.add(event.getHistoricalEventTime(h), pointToHue(event.getHistoricalX(h)), 0f);
             }
+            hue = pointToHue(event.getX());
+            trajectory.add(event.getEventTime(), hue, 0f);
             update = true;
         }
 
         return update;
     }
 
+    @Override
+    protected void onDetachedFromWindow() {
+        huePanel.cancel();
+        coalescer.cancel();
+        if (staticLayer != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            staticLayer.discard();
+        }
+        super.onDetachedFromWindow();
+    }
+
+    private void dispatchColorChange(boolean release) {
+        if (hueColorChangedListener == null && dragTrajectoryListener == null && state == null) {
+            return;
+        }
+        if (dispatchMode == FrameCoalescer.DISPATCH_PER_FRAME) {
+            coalescer.post();
+            if (release && flushOnRelease) {
+                coalescer.flush();
+            }
+        } else {
+            notifyColorChanged();
+        }
+    }
+
+    private void notifyColorChanged() {
+        stats.countDispatch();
+        if (state != null) {
+            state.setHue(hue, this);
+        }
+        // The listener may have been removed while a dispatch was pending.
+        if (hueColorChangedListener != null) {
+            hueColorChangedListener.onHueChanged(envelope.set(getColor()));
+        }
+        if (dragTrajectoryListener != null) {
+            dragTrajectoryListener.onDragTrajectory(this, trajectory);
+        }
+    }
+
+    private void readState(int changes) {
+        if ((changes & ColorPickerState.CHANGED_HUE) != 0) {
+            hue = state.getHue();
+        }
+        if ((changes & ColorPickerState.CHANGED_SAT) != 0) {
+            sat = state.getSat();
+        }
+        if ((changes & ColorPickerState.CHANGED_VAL) != 0) {
+            val = state.getVal();
+        }
+        if ((changes & ColorPickerState.CHANGED_ALPHA) != 0) {
+            alpha = state.getAlpha();
+        }
+    }
+
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         int desiredWidth = getSuggestedMinimumWidth() + getPaddingLeft() + getPaddingRight();
@@ -306,8 +413,6 @@ public class HueView extends View {
         drawingRect.right = w - getPaddingRight();
         drawingRect.top = getPaddingTop();
         drawingRect.bottom = h - getPaddingBottom();
-        // Clear those bitmap caches since the size may have changed.
-        hueBackgroundCache = null;
         setUpHueRect();
     }
 
@@ -318,7 +423,100 @@ public class HueView extends View {
         float top = dRect.top + BORDER_WIDTH_PX;
         float bottom = dRect.bottom + BORDER_WIDTH_PX;
         float right = dRect.right + BORDER_WIDTH_PX;
-        hueRect = new RectF(left, top, right, bottom);
+        huePanel.setBounds(left, top, right, bottom, roundPx);
+    }
+
+    /**
+     * Set how the spectrum bitmap is stored, see {@link BitmapStrategy}.
+     *
+     * @param strategy {@link BitmapStrategy#BITMAP_RGB_565} (default), {@link BitmapStrategy#BITMAP_ARGB_8888}
+     *                 or {@link BitmapStrategy#BITMAP_HARDWARE}.
+     */
+    public void setBitmapStrategy(int strategy) {
+        huePanel.setBitmapStrategy(strategy);
+        invalidate();
+    }
+
+    public int getBitmapStrategy() {
+        return huePanel.getBitmapStrategy();
+    }
+
+    /**
+     * Generate the hue spectrum on a background thread. While a new spectrum is
+     * generated the view keeps drawing the previous one.
+     */
+    public void setAsyncRendering(boolean async) {
+        huePanel.setAsyncRendering(async);
+        invalidate();
+    }
+
+    public boolean isAsyncRendering() {
+        return huePanel.isAsyncRendering();
+    }
+
+    /**
+     * Set how the changes made by touch are delivered to the listener.
+     *
+     * @param dispatchMode {@link FrameCoalescer#DISPATCH_IMMEDIATE} or {@link FrameCoalescer#DISPATCH_PER_FRAME}.
+     */
+    public void setDispatchMode(int dispatchMode) {
+        this.dispatchMode = dispatchMode;
+        if (dispatchMode == FrameCoalescer.DISPATCH_IMMEDIATE) {
+            coalescer.flush();
+        }
+    }
+
+    public int getDispatchMode() {
+        return dispatchMode;
+    }
+
+    /**
+     * With {@link FrameCoalescer#DISPATCH_PER_FRAME}, deliver the value the finger was
+     * lifted at right away instead of on the next frame. True by default.
+     */
+    public void setFlushOnRelease(boolean flushOnRelease) {
+        this.flushOnRelease = flushOnRelease;
+    }
+
+    public boolean isFlushOnRelease() {
+        return flushOnRelease;
+    }
+
+    /**
+     * Get the samples of the drags, with their velocity, along with the color changes made by touch.
+     * Follows the dispatch mode of the view.
+     */
+    public void setOnDragTrajectoryListener(DragTrajectoryListener listener) {
+        dragTrajectoryListener = listener;
+    }
+
+    /**
+     * @return the draw, rebuild and dispatch counts of this view, recorded while
+     * {@link PickerStats#setEnabled(boolean)} is on.
+     */
+    public PickerStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Bind the view to a color shared with other views. The view shows the state, and writes
+     * the components it edits to it, following the dispatch mode of the view.
+     * Unbind with null if the state outlives the view.
+     */
+    public void setState(ColorPickerState state) {
+        if (this.state != null) {
+            this.state.removeObserver(stateObserver);
+        }
+        this.state = state;
+        if (state != null) {
+            state.addObserver(stateObserver);
+            readState(ColorPickerState.CHANGED_ALL);
+            invalidate();
+        }
+    }
+
+    public ColorPickerState getState() {
+        return state;
     }
 
     /**
@@ -337,7 +535,7 @@ public class HueView extends View {
      * @return the current color.
      */
     public int getColor() {
-        return Color.HSVToColor(alpha, new float[]{hue, sat, val});
+        return HsvMath.hsvToColor(alpha, hue, sat, val);
     }
 
     /**
@@ -358,21 +556,22 @@ public class HueView extends View {
     public void setColor(int color, boolean callback) {
 
         int alpha = Color.alpha(color);
-        int red = Color.red(color);
-        int blue = Color.blue(color);
-        int green = Color.green(color);
-
-        float[] hsv = new float[3];
+        float[] hsv = hsvScratch;
 
-        Color.RGBToHSV(red, green, blue, hsv);
+        HsvMath.colorToHsv(color, hsv);
 
         this.alpha = alpha;
         hue = hsv[0];
         sat = hsv[1];
         val = hsv[2];
+        if (state != null) {
+            // Keeps the hue of gray colors and updates the other bound views.
+            state.setColor(color, this);
+            readState(ColorPickerState.CHANGED_ALL);
+        }
         callBack = callback;
         if (callBack && hueColorChangedListener != null) {
-            hueColorChangedListener.onHueChanged(new ColorEnvelope(getColor()));
+            hueColorChangedListener.onHueChanged(envelope.set(getColor()));
         }
         invalidate();
     }
@@ -17,6 +17,10 @@ class InputFilterMinMax : InputFilter {
         this.max = max.toInt()
     }
 
+    /*
+     * Parses the text the edit would produce in place, without building it. An empty field is
+     * accepted so the value can be retyped.
+     */
     override fun filter(
         source: CharSequence,
         start: Int,
@@ -24,22 +28,35 @@ class InputFilterMinMax : InputFilter {
         dest: Spanned,
         dstart: Int,
         dend: Int
-    ): CharSequence {
-        try {
-            val input = (dest.toString() + source.toString()).toInt()
-            if (isInRange(min, max, input)) {
-                return source
+    ): CharSequence? {
+        var value = 0L
+        var digits = 0
+        for (i in 0 until dstart + (end - start) + (dest.length - dend)) {
+            val c = when {
+                i < dstart -> dest[i]
+                i < dstart + end - start -> source[start + i - dstart]
+                else -> dest[dend + i - dstart - (end - start)]
             }
-        } catch (nfe: NumberFormatException) {
+            if (c !in '0'..'9' || ++digits > MAX_DIGITS) {
+                return ""
+            }
+            value = value * 10 + (c - '0')
+        }
+        if (digits == 0 || isInRange(min, max, value)) {
+            return null
         }
         return ""
     }
 
-    private fun isInRange(a: Int, b: Int, c: Int): Boolean {
+    private fun isInRange(a: Int, b: Int, c: Long): Boolean {
         return if (b > a) {
             c in a..b
         } else {
             c in b..a
         }
     }
-}
\ No newline at end of file
+
+    private companion object {
+        const val MAX_DIGITS = 10
+    }
+}
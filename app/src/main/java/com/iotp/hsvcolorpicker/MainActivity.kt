@@ -1,70 +1,64 @@
 package com.iotp.hsvcolorpicker
 
-import android.graphics.Color
 import android.os.Bundle
 import android.widget.LinearLayout
 import androidx.activity.viewModels
 import androidx.appcompat.app.AppCompatActivity
 import androidx.lifecycle.lifecycleScope
-import com.iotp.hsvcolorpicker.event.AlphaColorChangedListener
-import com.iotp.hsvcolorpicker.event.HueColorChangedListener
-import com.iotp.hsvcolorpicker.event.OnSatChangedListener
+import com.iotp.hsvcolorpicker.engine.ColorEnvelope
+import com.iotp.hsvcolorpicker.engine.ColorPickerState
 import kotlinx.coroutines.delay
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.launch
 import java.util.Date
 import kotlin.time.Duration.Companion.microseconds
 
-class MainActivity : AppCompatActivity(), OnSatChangedListener, HueColorChangedListener,
-    AlphaColorChangedListener {
+class MainActivity : AppCompatActivity() {
     private val colorPreview: ColorPreview by lazy {
         findViewById(R.id.colorPreview);
     }
 
     val ss: ColorPreviewViewModel by viewModels()
 
+    /* The color edited by the picker and the preview, they update each other through it. */
+    private val pickerState = ColorPickerState()
+    private val previewEnvelope = ColorEnvelope(0)
+
     private val rootView : LinearLayout by lazy {
         findViewById(R.id.root)
     }
-    private val hueView: HueView by lazy {
-        findViewById(R.id.cpv_hueView);
-    }
-    private val alphaView: AlphaView by lazy {
-        findViewById(R.id.cpv_alphaView);
-    }
-    private val satView: SatView by lazy {
-        findViewById(R.id.cpv_satView);
+    private val colorPickerView: ColorPickerView by lazy {
+        findViewById(R.id.cpv_colorPicker);
     }
 
 
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
         setContentView(R.layout.activity_main)
-        hueView.setOnColorChangedListener(this)
-        alphaView.setOnColorChangedListener(this)
-        satView.setOnColorChangedListener(this)
+        savedInstanceState?.getFloatArray(STATE_HSVA)?.let {
+            pickerState.set(it[0], it[1], it[2], it[3].toInt(), null)
+        }
+        colorPickerView.state = pickerState
+        pickerState.addObserver { state, _, source ->
+            if (source !== colorPreview) {
+                colorPreview.updateColor(previewEnvelope.set(state.color))
+            }
+        }
         colorPreview.onColorChange = {
-            satView.setColor(it, false)
-            hueView.setColor(it, false)
-            alphaView.setColor(it, false)
+            pickerState.setColor(it, colorPreview)
         }
-        colorPreview.setInitColor(ColorEnvelope(Color.parseColor("#000000")))
-    }
-
-    override fun onAlphaChanged(newColor: Int) {
-        val color = ColorEnvelope(newColor)
-        colorPreview.updateColor(color)
-        satView.updateAlpha(color,false)
+        colorPreview.setInitColor(ColorEnvelope(pickerState.color))
     }
 
-    override fun onHueChanged(colorEnvelope: ColorEnvelope) {
-        colorPreview.updateColor(colorEnvelope)
-        satView.updateHue(colorEnvelope, false)
-        alphaView.updateHue(colorEnvelope.hueColor, false)
+    override fun onSaveInstanceState(outState: Bundle) {
+        super.onSaveInstanceState(outState)
+        outState.putFloatArray(
+            STATE_HSVA,
+            floatArrayOf(pickerState.hue, pickerState.sat, pickerState.`val`, pickerState.alpha.toFloat())
+        )
     }
 
-    override fun onSatChange(colorEnvelope: ColorEnvelope?, fromUser: Boolean) {
-        alphaView.updateAlpha(colorEnvelope!!.color)
-        colorPreview.updateColor(colorEnvelope)
+    companion object {
+        private const val STATE_HSVA = "pickerState"
     }
-}
\ No newline at end of file
+}
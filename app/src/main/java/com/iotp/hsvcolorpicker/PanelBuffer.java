@@ -0,0 +1,54 @@
+package com.iotp.hsvcolorpicker;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+
+import com.iotp.hsvcolorpicker.engine.GradientRasterizer;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A sat/val panel owned by one view and redrawn in place.
+ * <p>
+ * Panels of exact hues are hardly ever drawn twice, putting them in the {@link GradientCache}
+ * would only evict the panels worth keeping. The pixel buffer and the bitmap are kept between
+ * hues and only reallocated when the size or the config change.
+ * Not thread safe, a buffer must only be drawn by one thread at a time.
+ */
+final class PanelBuffer {
+
+    private int[] pixels;
+    private Bitmap bitmap;
+
+    /**
+     * Hardware bitmaps can't be drawn into, the panel is kept in ARGB_8888 instead.
+     *
+     * @return the config of the bitmap {@link #drawSatVal} returns for the given config.
+     */
+    static Bitmap.Config mutableConfig(Bitmap.Config config) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && config == Bitmap.Config.HARDWARE) {
+            return Bitmap.Config.ARGB_8888;
+        }
+        return config;
+    }
+
+    /**
+     * Draw the sat/val panel of the given hue in the buffer.
+     *
+     * @return the bitmap of the buffer, the same one as the last call unless the size or config changed.
+     */
+    Bitmap drawSatVal(int width, int height, float hue, Bitmap.Config config, int parallelThreshold) {
+        final Bitmap.Config target = mutableConfig(config);
+        if (bitmap == null || bitmap.getWidth() != width || bitmap.getHeight() != height
+                || bitmap.getConfig() != target) {
+            pixels = new int[width * height];
+            bitmap = Bitmap.createBitmap(width, height, target);
+        }
+        GradientRasterizer.fillSatVal(pixels, width, height, hue, ForkJoinPool.commonPool(), parallelThreshold);
+        if (target == Bitmap.Config.RGB_565) {
+            GradientRasterizer.ditherTo565(pixels, width, height);
+        }
+        bitmap.setPixels(pixels, 0, width, 0, 0, width, height);
+        return bitmap;
+    }
+}
@@ -0,0 +1,318 @@
+package com.iotp.hsvcolorpicker;
+
+import android.os.Build;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.os.Trace;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Opt-in counters of what a picker view or drawable costs: onDraw time, allocations per draw,
+ * bitmap rebuilds, listener dispatches and gradient cache hits.
+ * <p>
+ * Every picker owns one instance, see e.g. {@link SatView#getStats()}. Nothing is recorded until
+ * {@link #setEnabled(boolean)} is called, the hooks are a single static read otherwise. While
+ * enabled, draws and rebuilds are also wrapped in {@link Trace} sections named like
+ * "SatView#onDraw" and the counts are published as trace counters on Q and later, so they show up
+ * in Perfetto and systrace captures. Rebuilds may be recorded from the raster threads, the other
+ * hooks from the main thread only.
+ */
+public final class PickerStats {
+
+    private static volatile boolean enabled;
+    private static volatile boolean trackAllocations;
+
+    private final String name;
+    private final String drawSection;
+    private final String rebuildSection;
+    private final String rebuildCounter;
+    private final String dispatchCounter;
+
+    private long drawCount;
+    private long drawTimeNanos;
+    private long maxDrawTimeNanos;
+    private long drawAllocations;
+    private long drawStartNanos;
+    private int drawStartAllocations;
+    private boolean drawing;
+
+    /* Written from the raster threads too. */
+    private long rebuildCount;
+    private long rebuildTimeNanos;
+
+    private long dispatchCount;
+    private long cacheHits;
+    private long cacheMisses;
+
+    /**
+     * @param name prefix of the trace sections and counters, e.g. the class of the view.
+     */
+    public PickerStats(@NonNull String name) {
+        this.name = name;
+        this.drawSection = name + "#onDraw";
+        this.rebuildSection = name + "#rebuild";
+        this.rebuildCounter = name + "#rebuilds";
+        this.dispatchCounter = name + "#dispatches";
+    }
+
+    /**
+     * Start or stop recording in every picker of the process. The counts already recorded are kept.
+     */
+    public static void setEnabled(boolean enabled) {
+        PickerStats.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Also count the allocations made on the main thread by every draw. This turns on the runtime
+     * allocation counting of {@link Debug}, which slows down every allocation of the process,
+     * keep it off when only timings are wanted.
+     */
+    @SuppressWarnings("deprecation")
+    public static void setAllocationTracking(boolean track) {
+        if (track == trackAllocations) {
+            return;
+        }
+        trackAllocations = track;
+        if (track) {
+            Debug.startAllocCounting();
+        } else {
+            Debug.stopAllocCounting();
+        }
+    }
+
+    public static boolean isAllocationTracking() {
+        return trackAllocations;
+    }
+
+    @SuppressWarnings("deprecation")
+    void beginDraw() {
+        if (!enabled) {
+            return;
+        }
+        drawing = true;
+        Trace.beginSection(drawSection);
+        if (trackAllocations) {
+            drawStartAllocations = Debug.getThreadAllocCount();
+        }
+        drawStartNanos = SystemClock.elapsedRealtimeNanos();
+    }
+
+    @SuppressWarnings("deprecation")
+    void endDraw() {
+        // Also skipped if recording was turned on in the middle of a draw.
+        if (!drawing) {
+            return;
+        }
+        drawing = false;
+        final long time = SystemClock.elapsedRealtimeNanos() - drawStartNanos;
+        if (trackAllocations) {
+            drawAllocations += Debug.getThreadAllocCount() - drawStartAllocations;
+        }
+        Trace.endSection();
+        drawCount++;
+        drawTimeNanos += time;
+        maxDrawTimeNanos = Math.max(maxDrawTimeNanos, time);
+    }
+
+    /**
+     * @return the start time to pass to {@link #endRebuild(long)}, 0 if not recording.
+     */
+    long beginRebuild() {
+        if (!enabled) {
+            return 0;
+        }
+        Trace.beginSection(rebuildSection);
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    void endRebuild(long startNanos) {
+        if (startNanos == 0) {
+            return;
+        }
+        final long time = SystemClock.elapsedRealtimeNanos() - startNanos;
+        Trace.endSection();
+        final long count;
+        synchronized (this) {
+            count = ++rebuildCount;
+            rebuildTimeNanos += time;
+        }
+        setCounter(rebuildCounter, count);
+    }
+
+    void countDispatch() {
+        if (enabled) {
+            setCounter(dispatchCounter, ++dispatchCount);
+        }
+    }
+
+    void countCacheHit() {
+        if (enabled) {
+            cacheHits++;
+        }
+    }
+
+    void countCacheMiss() {
+        if (enabled) {
+            cacheMisses++;
+        }
+    }
+
+    /**
+     * @return a copy of the counts recorded so far.
+     */
+    @NonNull
+    public Snapshot snapshot() {
+        final long rebuilds;
+        final long rebuildTime;
+        synchronized (this) {
+            rebuilds = rebuildCount;
+            rebuildTime = rebuildTimeNanos;
+        }
+        return new Snapshot(name, drawCount, drawTimeNanos, maxDrawTimeNanos,
+                trackAllocations ? drawAllocations : -1, rebuilds, rebuildTime,
+                dispatchCount, cacheHits, cacheMisses);
+    }
+
+    /**
+     * Clear the counts, e.g. between two scenarios of a benchmark.
+     */
+    public void reset() {
+        drawCount = 0;
+        drawTimeNanos = 0;
+        maxDrawTimeNanos = 0;
+        drawAllocations = 0;
+        dispatchCount = 0;
+        cacheHits = 0;
+        cacheMisses = 0;
+        synchronized (this) {
+            rebuildCount = 0;
+            rebuildTimeNanos = 0;
+        }
+    }
+
+    private static void setCounter(String counter, long value) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.setCounter(counter, value);
+        }
+    }
+
+    /**
+     * Immutable copy of the counts of one picker.
+     */
+    public static final class Snapshot {
+        private final String name;
+        private final long drawCount;
+        private final long drawTimeNanos;
+        private final long maxDrawTimeNanos;
+        private final long drawAllocations;
+        private final long rebuildCount;
+        private final long rebuildTimeNanos;
+        private final long dispatchCount;
+        private final long cacheHits;
+        private final long cacheMisses;
+
+        Snapshot(String name, long drawCount, long drawTimeNanos, long maxDrawTimeNanos, long drawAllocations,
+                 long rebuildCount, long rebuildTimeNanos, long dispatchCount, long cacheHits, long cacheMisses) {
+            this.name = name;
+            this.drawCount = drawCount;
+            this.drawTimeNanos = drawTimeNanos;
+            this.maxDrawTimeNanos = maxDrawTimeNanos;
+            this.drawAllocations = drawAllocations;
+            this.rebuildCount = rebuildCount;
+            this.rebuildTimeNanos = rebuildTimeNanos;
+            this.dispatchCount = dispatchCount;
+            this.cacheHits = cacheHits;
+            this.cacheMisses = cacheMisses;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getDrawCount() {
+            return drawCount;
+        }
+
+        public long getDrawTimeNanos() {
+            return drawTimeNanos;
+        }
+
+        public long getAverageDrawTimeNanos() {
+            return drawCount == 0 ? 0 : drawTimeNanos / drawCount;
+        }
+
+        public long getMaxDrawTimeNanos() {
+            return maxDrawTimeNanos;
+        }
+
+        /**
+         * @return the allocations of every recorded draw, -1 if allocation tracking is off.
+         */
+        public long getDrawAllocations() {
+            return drawAllocations;
+        }
+
+        /**
+         * @return the average allocations of a draw, -1 if allocation tracking is off.
+         */
+        public float getAllocationsPerDraw() {
+            if (drawAllocations < 0) {
+                return -1f;
+            }
+            return drawCount == 0 ? 0f : (float) drawAllocations / drawCount;
+        }
+
+        /**
+         * @return the number of gradient bitmaps or shaders built, on any thread.
+         */
+        public long getRebuildCount() {
+            return rebuildCount;
+        }
+
+        public long getRebuildTimeNanos() {
+            return rebuildTimeNanos;
+        }
+
+        /**
+         * @return the number of listener and state notifications.
+         */
+        public long getDispatchCount() {
+            return dispatchCount;
+        }
+
+        public long getCacheHits() {
+            return cacheHits;
+        }
+
+        public long getCacheMisses() {
+            return cacheMisses;
+        }
+
+        /**
+         * @return the share of gradient lookups served by {@link GradientCache}, 0 if there was none.
+         */
+        public float getCacheHitRatio() {
+            final long lookups = cacheHits + cacheMisses;
+            return lookups == 0 ? 0f : (float) cacheHits / lookups;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return name + "{draws=" + drawCount
+                    + ", avgDrawNs=" + getAverageDrawTimeNanos()
+                    + ", maxDrawNs=" + maxDrawTimeNanos
+                    + ", allocsPerDraw=" + getAllocationsPerDraw()
+                    + ", rebuilds=" + rebuildCount
+                    + ", rebuildNs=" + rebuildTimeNanos
+                    + ", dispatches=" + dispatchCount
+                    + ", cacheHitRatio=" + getCacheHitRatio()
+                    + "}";
+        }
+    }
+}
@@ -0,0 +1,436 @@
+package com.iotp.hsvcolorpicker;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.ComposeShader;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.Rect;
+import android.graphics.Shader;
+import android.os.Build;
+import android.view.View;
+
+import com.iotp.hsvcolorpicker.engine.GradientRasterizer;
+import com.iotp.hsvcolorpicker.engine.HsvMath;
+import com.iotp.hsvcolorpicker.engine.PickerGeometry;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Draws the sat/val panel and maps touches on it, shared by {@link SatView} and {@link ColorPickerView}.
+ * <p>
+ * Panels of quantized hues go through the {@link GradientCache} and are shared with every view of
+ * the same size, panels of exact hues are redrawn in place in a {@link PanelBuffer}. In async mode
+ * the panel is drawn on the raster thread and the host view is invalidated when it is ready.
+ */
+final class SatValPanel {
+
+    /**
+     * The width in pixels of the border
+     * surrounding the panel.
+     */
+    private final static int BORDER_WIDTH_PX = 1;
+
+    private final static Executor PREFETCH_EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "SatView-prefetch");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    });
+    private final static Set<GradientCache.Key> PREFETCHING =
+            Collections.newSetFromMap(new ConcurrentHashMap<GradientCache.Key, Boolean>());
+
+    private final View host;
+    private final PickerStats stats;
+    private final GradientCache gradientCache = GradientCache.getInstance();
+    private final Rect rect = new Rect();
+    private final Paint bitmapPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    /*
+     * The panel drawn last and the hue it was drawn for. In async mode this may still be the
+     * previous panel until the new one is ready.
+     */
+    private Bitmap bitmap;
+    private float bitmapHue;
+    /*
+     * Panels of exact hues are redrawn in place instead of being cached. In async mode the back
+     * buffer is drawn on the raster thread and swapped with the front one when ready.
+     */
+    private PanelBuffer buffer = new PanelBuffer();
+    private PanelBuffer backBuffer = new PanelBuffer();
+    private final AsyncRasterizer rasterizer = new AsyncRasterizer();
+
+    /* Only used in shader render mode. */
+    private final Paint shaderPaint = new Paint();
+    private Shader valShader;
+    private Shader satShader;
+    private float shaderHue;
+
+    private int renderMode = SatView.RENDER_MODE_BITMAP;
+    private int bitmapStrategy = BitmapStrategy.BITMAP_ARGB_8888;
+    private int parallelThreshold = GradientRasterizer.DEFAULT_PARALLEL_THRESHOLD;
+    /*
+     * Number of hue buckets the panel is drawn for, 0 to draw the exact hue.
+     * When quantized, a hue drag mostly picks up panels already in the cache.
+     */
+    private int hueBuckets = SatView.HUE_QUANTIZATION_NONE;
+    private boolean prefetchHues = false;
+    private boolean asyncRendering = false;
+
+    SatValPanel(View host, PickerStats stats) {
+        this.host = host;
+        this.stats = stats;
+    }
+
+    /**
+     * Set the bounds of the panel, in the coordinates of the host. The border is drawn around them.
+     */
+    void setBounds(int left, int top, int right, int bottom) {
+        rect.set(left, top, right, bottom);
+        //The need to be recreated because they depend on the size of the view.
+        valShader = null;
+        satShader = null;
+        // In async mode the old panel is kept and scaled until the new one is ready.
+        if (!asyncRendering) {
+            bitmap = null;
+        }
+    }
+
+    Rect getBounds() {
+        return rect;
+    }
+
+    /**
+     * Draw the border and the panel of the hue, everything but the thumb.
+     */
+    void draw(Canvas canvas, float hue, Paint borderPaint) {
+        if (BORDER_WIDTH_PX > 0) {
+            canvas.drawRect(rect.left - BORDER_WIDTH_PX, rect.top - BORDER_WIDTH_PX, rect.right + BORDER_WIDTH_PX,
+                    rect.bottom + BORDER_WIDTH_PX, borderPaint);
+        }
+        if (renderMode == SatView.RENDER_MODE_SHADER && canDrawShader(canvas)) {
+            drawShader(canvas, hue);
+        } else {
+            drawBitmap(canvas, hue);
+        }
+    }
+
+    /**
+     * @return the panel bitmap drawn last, null in shader render mode or before the first draw.
+     */
+    Bitmap getBitmap() {
+        return bitmap;
+    }
+
+    boolean contains(float x, float y) {
+        return rect.contains((int) x, (int) y);
+    }
+
+    float satAt(float x) {
+        return PickerGeometry.xToSat(x, rect.left, rect.width());
+    }
+
+    float valAt(float y) {
+        return PickerGeometry.yToVal(y, rect.top, rect.height());
+    }
+
+    float satToX(float sat) {
+        return PickerGeometry.satToX(sat, rect.left, rect.width());
+    }
+
+    float valToY(float val) {
+        return PickerGeometry.valToY(val, rect.top, rect.height());
+    }
+
+    /**
+     * Drop the panel being generated, called when the host is detached.
+     */
+    void cancel() {
+        rasterizer.cancel();
+    }
+
+    /**
+     * Before P the hardware renderer can't compose two shaders of the same type,
+     * in that case we stay on the bitmap path.
+     */
+    private static boolean canDrawShader(Canvas canvas) {
+        return !canvas.isHardwareAccelerated() || Build.VERSION.SDK_INT >= Build.VERSION_CODES.P;
+    }
+
+    /**
+     * Draw the composed gradients straight on the canvas, no intermediate bitmap.
+     * Only the saturation gradient is rebuilt when the hue changes.
+     */
+    private void drawShader(Canvas canvas, float hue) {
+        if (valShader == null) {
+            //Black gradient has either not been created or the view has been resized.
+            valShader =
+                    new LinearGradient(rect.left, rect.top, rect.left, rect.bottom, 0xffffffff, 0xff000000, Shader.TileMode.CLAMP);
+        }
+        if (satShader == null || shaderHue != hue) {
+            final long rebuildStart = stats.beginRebuild();
+            int rgb = HsvMath.hsvToColor(hue, 1f, 1f);
+            satShader = new LinearGradient(rect.left, rect.top, rect.right, rect.top, 0xffffffff, rgb, Shader.TileMode.CLAMP);
+            shaderPaint.setShader(new ComposeShader(valShader, satShader, PorterDuff.Mode.MULTIPLY));
+            shaderHue = hue;
+            stats.endRebuild(rebuildStart);
+        }
+        canvas.drawRect(rect, shaderPaint);
+    }
+
+    private void drawBitmap(Canvas canvas, float hue) {
+        //If the hue or the size has changed we need to pick up another bitmap.
+        final float panelHue = quantizeHue(hue);
+        Bitmap.Config config = BitmapStrategy.resolveConfig(bitmapStrategy, canvas);
+        if (hueBuckets <= 0) {
+            config = PanelBuffer.mutableConfig(config);
+        }
+        if (bitmap == null || bitmapHue != panelHue
+                || bitmap.getWidth() != rect.width()
+                || bitmap.getHeight() != rect.height()
+                || bitmap.getConfig() != config) {
+            update(rect.width(), rect.height(), panelHue, config);
+        } else if (rasterizer.hasPending()) {
+            // Back to the panel we already show, the running request is stale.
+            rasterizer.cancel();
+        }
+
+        // In async mode this may still be the previous panel until the new one is ready.
+        if (bitmap != null) {
+            canvas.drawBitmap(bitmap, null, rect, bitmapPaint);
+        }
+    }
+
+    private void update(final int width, final int height, final float panelHue, final Bitmap.Config config) {
+        if (hueBuckets <= 0) {
+            updateExact(width, height, panelHue, config);
+            return;
+        }
+        // Panels are shared with every other view of the same size,
+        // so we only draw one if no view has drawn it yet.
+        final GradientCache.Key key = new GradientCache.Key(GradientCache.KIND_SAT_VAL, width, height,
+                config, 0, panelHue, 0);
+        Bitmap panel = gradientCache.get(key);
+        if (panel == null) {
+            stats.countCacheMiss();
+        } else {
+            stats.countCacheHit();
+        }
+        final int threshold = parallelThreshold;
+        if (panel == null && asyncRendering) {
+            // Keep drawing the current panel, the new one is swapped in when ready.
+            if (!rasterizer.isPending(key)) {
+                rasterizer.submit(key, new AsyncRasterizer.Producer() {
+                    @Override
+                    public Bitmap produce() {
+                        final long rebuildStart = stats.beginRebuild();
+                        Bitmap panel = createBitmap(width, height, panelHue, config, threshold);
+                        stats.endRebuild(rebuildStart);
+                        gradientCache.put(key, panel);
+                        return panel;
+                    }
+                }, new AsyncRasterizer.Consumer() {
+                    @Override
+                    public void onBitmapReady(Bitmap panel) {
+                        setBitmap(panel, panelHue);
+                        host.invalidate();
+                    }
+                });
+            }
+            return;
+        }
+        if (panel == null) {
+            final long rebuildStart = stats.beginRebuild();
+            panel = createBitmap(width, height, panelHue, config, threshold);
+            stats.endRebuild(rebuildStart);
+            gradientCache.put(key, panel);
+        }
+        rasterizer.cancel();
+        setBitmap(panel, panelHue);
+    }
+
+    /**
+     * Redraw the panel of an exact hue in the buffers of the panel, the shared cache is left alone.
+     */
+    private void updateExact(final int width, final int height, final float panelHue, final Bitmap.Config config) {
+        final int threshold = parallelThreshold;
+        if (asyncRendering) {
+            // Only a tag here, the panel is never put in the cache.
+            final GradientCache.Key key = new GradientCache.Key(GradientCache.KIND_SAT_VAL, width, height,
+                    config, 0, panelHue, 0);
+            if (!rasterizer.isPending(key)) {
+                // The raster thread runs one request at a time, and the consumer of a request only
+                // runs if no other was submitted since, so the back buffer is never drawn twice at once.
+                final PanelBuffer back = backBuffer;
+                rasterizer.submit(key, new AsyncRasterizer.Producer() {
+                    @Override
+                    public Bitmap produce() {
+                        final long rebuildStart = stats.beginRebuild();
+                        Bitmap panel = back.drawSatVal(width, height, panelHue, config, threshold);
+                        stats.endRebuild(rebuildStart);
+                        return panel;
+                    }
+                }, new AsyncRasterizer.Consumer() {
+                    @Override
+                    public void onBitmapReady(Bitmap panel) {
+                        backBuffer = buffer;
+                        buffer = back;
+                        setBitmap(panel, panelHue);
+                        host.invalidate();
+                    }
+                });
+            }
+            return;
+        }
+        rasterizer.cancel();
+        final long rebuildStart = stats.beginRebuild();
+        final Bitmap panel = buffer.drawSatVal(width, height, panelHue, config, threshold);
+        stats.endRebuild(rebuildStart);
+        setBitmap(panel, panelHue);
+    }
+
+    private void setBitmap(Bitmap panel, float panelHue) {
+        bitmap = panel;
+        //We keep the hue the panel was drawn with,
+        //then we know that if it hasn't changed we can reuse it.
+        bitmapHue = panelHue;
+
+        if (prefetchHues && hueBuckets > 0) {
+            prefetchNeighborHues(panel.getWidth(), panel.getHeight(), panelHue, panel.getConfig());
+        }
+    }
+
+    /**
+     * Draw the sat/val panel for the given hue in a new bitmap.
+     * Only uses local objects so it can run on the prefetch thread.
+     */
+    private static Bitmap createBitmap(int width, int height, float hue, Bitmap.Config config,
+                                       int parallelThreshold) {
+        // The gradient is computed on the cpu in a plain buffer, in bitmap coordinates so
+        // the same bitmap can be shared by any view of the same size, and uploaded in one call.
+        int[] pixels = new int[width * height];
+        // Large panels are split across the cores, the threads of the common pool are shared with the app.
+        GradientRasterizer.fillSatVal(pixels, width, height, hue, ForkJoinPool.commonPool(), parallelThreshold);
+        return BitmapStrategy.createBitmap(pixels, width, height, config);
+    }
+
+    /**
+     * Snap the hue to the configured number of buckets.
+     * Hues of the same bucket share the same cached panel.
+     */
+    private float quantizeHue(float hue) {
+        if (hueBuckets <= 0) {
+            return hue;
+        }
+        final float step = 360f / hueBuckets;
+        return (Math.round(hue / step) % hueBuckets) * step;
+    }
+
+    /**
+     * Draw the panels of the two neighbor buckets on a background thread,
+     * so a continuous hue drag finds them in the cache.
+     */
+    private void prefetchNeighborHues(int width, int height, float panelHue, Bitmap.Config config) {
+        final float step = 360f / hueBuckets;
+        prefetch(width, height, quantizeHue(panelHue + step), config);
+        prefetch(width, height, quantizeHue(panelHue - step + 360f), config);
+    }
+
+    private void prefetch(final int width, final int height, final float panelHue, final Bitmap.Config config) {
+        final GradientCache.Key key = new GradientCache.Key(GradientCache.KIND_SAT_VAL, width, height,
+                config, 0, panelHue, 0);
+        if (gradientCache.get(key) != null || !PREFETCHING.add(key)) {
+            return;
+        }
+        final int threshold = parallelThreshold;
+        PREFETCH_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (gradientCache.get(key) == null) {
+                        final long rebuildStart = stats.beginRebuild();
+                        final Bitmap panel = createBitmap(width, height, panelHue, config, threshold);
+                        stats.endRebuild(rebuildStart);
+                        gradientCache.put(key, panel);
+                    }
+                } finally {
+                    PREFETCHING.remove(key);
+                }
+            }
+        });
+    }
+
+    /**
+     * See {@link SatView#setHueQuantization(int)}.
+     */
+    void setHueQuantization(int buckets) {
+        hueBuckets = buckets;
+    }
+
+    int getHueQuantization() {
+        return hueBuckets;
+    }
+
+    void setPrefetchHues(boolean prefetch) {
+        prefetchHues = prefetch;
+    }
+
+    boolean isPrefetchHues() {
+        return prefetchHues;
+    }
+
+    /**
+     * See {@link SatView#setRenderMode(int)}.
+     */
+    void setRenderMode(int renderMode) {
+        this.renderMode = renderMode;
+        satShader = null;
+        if (renderMode == SatView.RENDER_MODE_SHADER) {
+            // Let the panel bitmaps go, the shared cache still holds the quantized ones if there is room.
+            bitmap = null;
+            buffer = new PanelBuffer();
+            backBuffer = new PanelBuffer();
+        }
+    }
+
+    int getRenderMode() {
+        return renderMode;
+    }
+
+    void setBitmapStrategy(int strategy) {
+        bitmapStrategy = strategy;
+    }
+
+    int getBitmapStrategy() {
+        return bitmapStrategy;
+    }
+
+    void setParallelThreshold(int pixels) {
+        parallelThreshold = pixels;
+    }
+
+    int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    void setAsyncRendering(boolean async) {
+        asyncRendering = async;
+        if (!async) {
+            rasterizer.cancel();
+        }
+    }
+
+    boolean isAsyncRendering() {
+        return asyncRendering;
+    }
+}
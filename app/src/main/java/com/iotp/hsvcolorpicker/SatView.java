@@ -5,13 +5,10 @@ import android.content.res.TypedArray;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.ComposeShader;
-import android.graphics.LinearGradient;
 import android.graphics.Paint;
 import android.graphics.Point;
-import android.graphics.PorterDuff;
 import android.graphics.Rect;
-import android.graphics.Shader;
+import android.os.Build;
 import android.os.Bundle;
 import android.os.Parcelable;
 import android.util.AttributeSet;
@@ -20,8 +17,15 @@ import android.util.TypedValue;
 import android.view.MotionEvent;
 import android.view.View;
 
+import androidx.annotation.RequiresApi;
+
+import com.iotp.hsvcolorpicker.engine.ColorEnvelope;
+import com.iotp.hsvcolorpicker.engine.ColorPickerState;
+import com.iotp.hsvcolorpicker.engine.DragTrajectory;
+import com.iotp.hsvcolorpicker.engine.GradientRasterizer;
+import com.iotp.hsvcolorpicker.engine.HsvMath;
+import com.iotp.hsvcolorpicker.event.DragTrajectoryListener;
 import com.iotp.hsvcolorpicker.event.OnSatChangedListener;
-import com.iotp.hsvcolorpicker.utils.ColorUtils;
 import com.iotp.hsvcolorpicker.utils.Constant;
 import com.iotp.hsvcolorpicker.utils.DrawingUtils;
 
@@ -31,6 +35,18 @@ public class SatView extends View {
     private final static int DEFAULT_SLIDER_COLOR = 0xFFBDBDBD;
     private final static int CIRCLE_TRACKER_RADIUS_DP = 10;
 
+    /** The sat/val panel is drawn in a cached bitmap, then the bitmap is drawn. */
+    public final static int RENDER_MODE_BITMAP = 0;
+    /** The sat/val gradients are drawn straight on the canvas, no bitmap is kept. */
+    public final static int RENDER_MODE_SHADER = 1;
+
+    /** Every hue gets its own panel. */
+    public final static int HUE_QUANTIZATION_NONE = 0;
+    /** One panel per degree of hue. */
+    public final static int HUE_QUANTIZATION_DEGREE = 360;
+    /** One panel per half degree of hue. */
+    public final static int HUE_QUANTIZATION_HALF_DEGREE = 720;
+
     /**
      * The width in pixels of the border
      * surrounding all color panels.
@@ -42,20 +58,53 @@ public class SatView extends View {
      */
     private int circleTrackerRadiusPx;
 
-    private Paint satValPaint;
     private Paint satValTrackerPaint;
 
     private Paint borderPaint;
 
-    private Shader valShader;
-    private Shader satShader;
-
     private Paint thumbPaint;
-    /*
-     * We cache a bitmap of the sat/val panel which is expensive to draw each time.
-     * We can reuse it when the user is sliding the circle picker as long as the hue isn't changed.
-     */
-    private BitmapCache satValBackgroundCache;
+    private final FrameCoalescer coalescer = new FrameCoalescer(new Runnable() {
+        @Override
+        public void run() {
+            notifyColorChanged();
+        }
+    });
+    private int dispatchMode = FrameCoalescer.DISPATCH_IMMEDIATE;
+    private boolean flushOnRelease = true;
+    private final PickerStats stats = new PickerStats("SatView");
+    /* Draws the panel and maps the touches, shared with ColorPickerView. */
+    private final SatValPanel satValPanel = new SatValPanel(this, stats);
+    /* Background recorded in a RenderNode on API 29+, and what it was recorded with. */
+    private StaticLayer staticLayer;
+    private float layerHue = Float.NaN;
+    private Bitmap layerPanel;
+    private int layerRenderMode = -1;
+    /* Thumb bounds as last drawn, empty until the first draw. */
+    private final Rect thumbBounds = new Rect();
+    private final Rect dirtyBounds = new Rect();
+    private final Point thumbPoint = new Point();
+    private final Point dirtyPoint = new Point();
+    /* Samples of the current drag, see DragTrajectory. */
+    private final DragTrajectory trajectory = new DragTrajectory();
+    private DragTrajectoryListener dragTrajectoryListener;
+    /* Shared color when bound, see setState. */
+    private ColorPickerState state;
+    private final ColorPickerState.Observer stateObserver = new ColorPickerState.Observer() {
+        @Override
+        public void onStateChanged(ColorPickerState state, int changes, Object source) {
+            // Changes made by this view are already drawn.
+            if (source != SatView.this) {
+                readState(changes);
+                // The panel only depends on the hue.
+                if ((changes & ColorPickerState.CHANGED_HUE) != 0) {
+                    invalidate();
+                } else {
+                    invalidateThumb();
+                }
+            }
+        }
+    };
+    private final float[] satValScratch = new float[2];
 
     /* Current values */
     private int alpha = Constant.DEFAULT_ALPHA_VALUE;
@@ -64,6 +113,7 @@ public class SatView extends View {
     private float val = 0f;
     private int sliderTrackerColor = DEFAULT_SLIDER_COLOR;
     private int borderColor = DEFAULT_BORDER_COLOR;
+    private final float[] hsvScratch = new float[3];
 
     private boolean callBack = false;
     /**
@@ -80,9 +130,10 @@ public class SatView extends View {
      */
     private Rect drawingRect;
 
-    private Rect satValRect;
     private Point startTouchPoint = null;
     private OnSatChangedListener onSatChangedListener;
+    /* Reused for every callback, see ColorEnvelope. */
+    private final ColorEnvelope envelope = new ColorEnvelope(0);
 
     public SatView(Context context) {
         this(context, null);
@@ -127,10 +178,18 @@ public class SatView extends View {
     private void init(Context context, AttributeSet attrs) {
         //Load those if set in xml resource file.
         TypedArray a = getContext().obtainStyledAttributes(attrs, R.styleable.SatView);
+        satValPanel.setHueQuantization(a.getInt(R.styleable.SatView_hueQuantization, HUE_QUANTIZATION_NONE));
+        satValPanel.setPrefetchHues(a.getBoolean(R.styleable.SatView_prefetchHues, false));
+        satValPanel.setAsyncRendering(a.getBoolean(R.styleable.SatView_asyncRendering, false));
+        dispatchMode = a.getInt(R.styleable.SatView_dispatchMode, FrameCoalescer.DISPATCH_IMMEDIATE);
+        flushOnRelease = a.getBoolean(R.styleable.SatView_flushOnRelease, true);
+        satValPanel.setRenderMode(a.getInt(R.styleable.SatView_renderMode, RENDER_MODE_BITMAP));
+        satValPanel.setBitmapStrategy(a.getInt(R.styleable.SatView_bitmapStrategy, BitmapStrategy.BITMAP_ARGB_8888));
         a.recycle();
         applyThemeColors(context);
         circleTrackerRadiusPx = DrawingUtils.dpToPx(getContext(), CIRCLE_TRACKER_RADIUS_DP);
         mRequiredPadding = getResources().getDimensionPixelSize(R.dimen.cpv_required_padding);
+        GradientCache.getInstance().attach(context);
         initPaintTools();
         //Needed for receiving trackball motion events.
         setFocusable(true);
@@ -159,7 +218,6 @@ public class SatView extends View {
 
     private void initPaintTools() {
 
-        satValPaint = new Paint();
         satValTrackerPaint = new Paint();
         borderPaint = new Paint();
 
@@ -174,71 +232,22 @@ public class SatView extends View {
         if (drawingRect.width() <= 0 || drawingRect.height() <= 0) {
             return;
         }
+        stats.beginDraw();
         drawSatValPanel(canvas);
+        stats.endDraw();
     }
 
     private void drawSatValPanel(Canvas canvas) {
-        final Rect rect = satValRect;
-
-        if (BORDER_WIDTH_PX > 0) {
-            borderPaint.setColor(borderColor);
-            canvas.drawRect(drawingRect.left, drawingRect.top, rect.right + BORDER_WIDTH_PX, rect.bottom + BORDER_WIDTH_PX,
-                    borderPaint);
-        }
-
-        if (valShader == null) {
-            //Black gradient has either not been created or the view has been resized.
-            valShader =
-                    new LinearGradient(rect.left, rect.top, rect.left, rect.bottom, 0xffffffff, 0xff000000, Shader.TileMode.CLAMP);
-        }
-
-        //If the hue has changed we need to recreate the cache.
-        if (satValBackgroundCache == null || satValBackgroundCache.value != hue) {
-
-            if (satValBackgroundCache == null) {
-                satValBackgroundCache = new BitmapCache();
-            }
-
-            //We create our bitmap in the cache if it doesn't exist.
-            if (satValBackgroundCache.bitmap == null) {
-                satValBackgroundCache.bitmap = Bitmap.createBitmap(rect.width(), rect.height(), Bitmap.Config.ARGB_8888);
-            }
-
-            //We create the canvas once so we can draw on our bitmap and the hold on to it.
-            if (satValBackgroundCache.canvas == null) {
-                satValBackgroundCache.canvas = new Canvas(satValBackgroundCache.bitmap);
-            }
-
-            int rgb = Color.HSVToColor(new float[]{hue, 1f, 1f});
-
-            satShader = new LinearGradient(rect.left, rect.top, rect.right, rect.top, 0xffffffff, rgb, Shader.TileMode.CLAMP);
-
-            ComposeShader mShader = new ComposeShader(valShader, satShader, PorterDuff.Mode.MULTIPLY);
-            satValPaint.setShader(mShader);
-
-            // Finally we draw on our canvas, the result will be
-            // stored in our bitmap which is already in the cache.
-            // Since this is drawn on a canvas not rendered on
-            // screen it will automatically not be using the
-            // hardware acceleration. And this was the code that
-            // wasn't supported by hardware acceleration which mean
-            // there is no need to turn it of anymore. The rest of
-            // the view will still be hw accelerated.
-            satValBackgroundCache.canvas.drawRect(0, 0, satValBackgroundCache.bitmap.getWidth(),
-                    satValBackgroundCache.bitmap.getHeight(), satValPaint);
-
-            //We set the hue value in our cache to which hue it was drawn with,
-            //then we know that if it hasn't changed we can reuse our cached bitmap.
-            satValBackgroundCache.value = hue;
+        if (StaticLayer.canDraw(canvas)) {
+            drawStaticLayer(canvas);
+        } else {
+            drawSatValBackground(canvas);
         }
 
-        // We draw our bitmap from the cached, if the hue has changed
-        // then it was just recreated otherwise the old one will be used.
-        canvas.drawBitmap(satValBackgroundCache.bitmap, null, rect, null);
-
-        Point p = satValToPoint(sat, val);
+        Point p = satValToPoint(sat, val, thumbPoint);
 
         DrawingUtils.drawnThumb(canvas, p, thumbPaint, circleTrackerRadiusPx, getColor());
+        DrawingUtils.thumbBounds(p, circleTrackerRadiusPx, thumbBounds);
 //        satValTrackerPaint.setColor(0xff000000);
 //        canvas.drawCircle(p.x, p.y, circleTrackerRadiusPx - DrawingUtils.dpToPx(getContext(), 1), satValTrackerPaint);
 //
@@ -246,47 +255,61 @@ public class SatView extends View {
 //        canvas.drawCircle(p.x, p.y, circleTrackerRadiusPx, satValTrackerPaint);
     }
 
-    private Point satValToPoint(float sat, float val) {
-
-        final Rect rect = satValRect;
-        final float height = rect.height();
-        final float width = rect.width();
-
-        Point p = new Point();
-
-        p.x = (int) (sat * width + rect.left);
-        p.y = (int) ((1f - val) * height + rect.top);
-
-        return p;
+    /* Border and panel, everything but the thumb. */
+    private void drawSatValBackground(Canvas canvas) {
+        borderPaint.setColor(borderColor);
+        satValPanel.draw(canvas, hue, borderPaint);
     }
 
-    private float[] pointToSatVal(float x, float y) {
-
-        final Rect rect = satValRect;
-        float[] result = new float[2];
-
-        float width = rect.width();
-        float height = rect.height();
-
-        if (x < rect.left) {
-            x = 0f;
-        } else if (x > rect.right) {
-            x = width;
-        } else {
-            x = x - rect.left;
+    /**
+     * Replay the recorded background, it is only recorded again when the hue, the panel bitmap
+     * or the render mode changed. In async mode the swap of the panel triggers a new recording.
+     */
+    @RequiresApi(Build.VERSION_CODES.Q)
+    private void drawStaticLayer(Canvas canvas) {
+        if (staticLayer == null) {
+            staticLayer = new StaticLayer("SatView", new StaticLayer.Recorder() {
+                @Override
+                public void record(Canvas canvas) {
+                    drawSatValBackground(canvas);
+                }
+            });
+        }
+        final int renderMode = satValPanel.getRenderMode();
+        if (Float.compare(layerHue, hue) != 0 || layerPanel != satValPanel.getBitmap() || layerRenderMode != renderMode) {
+            staticLayer.invalidate();
         }
+        staticLayer.draw(canvas, getWidth(), getHeight());
+        // Recording may have swapped the panel in.
+        layerHue = hue;
+        layerPanel = satValPanel.getBitmap();
+        layerRenderMode = renderMode;
+    }
 
-        if (y < rect.top) {
-            y = 0f;
-        } else if (y > rect.bottom) {
-            y = height;
-        } else {
-            y = y - rect.top;
+    /**
+     * Invalidate only where the thumb was drawn and where it is drawn next, the panel under it
+     * did not change. This saves the fill work of software layers. On hardware accelerated
+     * windows the framework computes the damaged area itself and ignores the rect.
+     */
+    private void invalidateThumb() {
+        if (thumbBounds.isEmpty()) {
+            invalidate();
+            return;
         }
+        DrawingUtils.thumbBounds(satValToPoint(sat, val, dirtyPoint), circleTrackerRadiusPx, dirtyBounds);
+        dirtyBounds.union(thumbBounds);
+        invalidate(dirtyBounds);
+    }
 
-        result[0] = 1.f / width * x;
-        result[1] = 1.f - (1.f / height * y);
+    private Point satValToPoint(float sat, float val, Point p) {
+        p.x = (int) satValPanel.satToX(sat);
+        p.y = (int) satValPanel.valToY(val);
+        return p;
+    }
 
+    private float[] pointToSatVal(float x, float y, float[] result) {
+        result[0] = satValPanel.satAt(x);
+        result[1] = satValPanel.valAt(y);
         return result;
     }
 
@@ -298,6 +321,7 @@ public class SatView extends View {
 
             case MotionEvent.ACTION_DOWN:
                 startTouchPoint = new Point((int) event.getX(), (int) event.getY());
+                trajectory.reset();
                 update = moveTrackersIfNeeded(event);
                 break;
             case MotionEvent.ACTION_MOVE:
@@ -310,10 +334,8 @@ public class SatView extends View {
         }
 
         if (update) {
-            if (onSatChangedListener != null && callBack) {
-                onSatChangedListener.onSatChange(new ColorEnvelope(Color.HSVToColor(alpha, new float[]{hue, sat, val})), false);
-            }
-            invalidate();
+            dispatchColorChange(event.getAction() == MotionEvent.ACTION_UP);
+            invalidateThumb();
             return true;
         }
 
@@ -321,10 +343,10 @@ public class SatView extends View {
     }
 
     public void updateHue(ColorEnvelope colorEnvelope, boolean callBack) {
-        this.hue = ColorUtils.argbToHsv(colorEnvelope.getColor())[0];
+        this.hue = HsvMath.hue(colorEnvelope.getColor());
         this.callBack = callBack;
         if (callBack) {
-            onSatChangedListener.onSatChange(new ColorEnvelope(Color.HSVToColor(alpha, new float[]{hue, sat, val})), false);
+            onSatChangedListener.onSatChange(envelope.set(getColor()), false);
         }
         invalidate();
     }
@@ -332,7 +354,7 @@ public class SatView extends View {
         this.alpha = colorEnvelope.getAlphaColor();
         this.callBack = callBack;
         if (callBack) {
-            onSatChangedListener.onSatChange(new ColorEnvelope(Color.HSVToColor(alpha, new float[]{hue, sat, val})), false);
+            onSatChangedListener.onSatChange(envelope.set(getColor()), false);
         }
         invalidate();
     }
@@ -345,10 +367,17 @@ public class SatView extends View {
         int startX = startTouchPoint.x;
         int startY = startTouchPoint.y;
 
-        if (satValRect.contains(startX, startY)) {
-            float[] result = pointToSatVal(event.getX(), event.getY());
-            sat = result[0];
-            val = result[1];
+        if (satValPanel.contains(startX, startY)) {
+            // Samples batched by the system since the previous event, oldest first.
+            final int historySize = event.getHistorySize();
+            for (int h = 0; h < historySize; h++) {
+                pointToSatVal(event.getHistoricalX(h), event.getHistoricalY(h), satValScratch);
+                trajectory.add(event.getHistoricalEventTime(h), satValScratch[0], satValScratch[1]);
+            }
+            pointToSatVal(event.getX(), event.getY(), satValScratch);
+            trajectory.add(event.getEventTime(), satValScratch[0], satValScratch[1]);
+            sat = satValScratch[0];
+            val = satValScratch[1];
             update = true;
             callBack = true;
         }
@@ -356,6 +385,59 @@ public class SatView extends View {
         return update;
     }
 
+    @Override
+    protected void onDetachedFromWindow() {
+        satValPanel.cancel();
+        coalescer.cancel();
+        if (staticLayer != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            staticLayer.discard();
+        }
+        super.onDetachedFromWindow();
+    }
+
+    private void dispatchColorChange(boolean release) {
+        if ((onSatChangedListener == null && dragTrajectoryListener == null && state == null) || !callBack) {
+            return;
+        }
+        if (dispatchMode == FrameCoalescer.DISPATCH_PER_FRAME) {
+            coalescer.post();
+            if (release && flushOnRelease) {
+                coalescer.flush();
+            }
+        } else {
+            notifyColorChanged();
+        }
+    }
+
+    private void notifyColorChanged() {
+        stats.countDispatch();
+        if (state != null) {
+            state.setSatVal(sat, val, this);
+        }
+        // The listener may have been removed while a dispatch was pending.
+        if (onSatChangedListener != null) {
+            onSatChangedListener.onSatChange(envelope.set(getColor()), false);
+        }
+        if (dragTrajectoryListener != null) {
+            dragTrajectoryListener.onDragTrajectory(this, trajectory);
+        }
+    }
+
+    private void readState(int changes) {
+        if ((changes & ColorPickerState.CHANGED_HUE) != 0) {
+            hue = state.getHue();
+        }
+        if ((changes & ColorPickerState.CHANGED_SAT) != 0) {
+            sat = state.getSat();
+        }
+        if ((changes & ColorPickerState.CHANGED_VAL) != 0) {
+            val = state.getVal();
+        }
+        if ((changes & ColorPickerState.CHANGED_ALPHA) != 0) {
+            alpha = state.getAlpha();
+        }
+    }
+
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         Log.v("SAT onMeasure w", MeasureSpec.toString(widthMeasureSpec));
@@ -416,11 +498,6 @@ public class SatView extends View {
         drawingRect.top = getPaddingTop();
         drawingRect.bottom = h - getPaddingBottom();
 
-        //The need to be recreated because they depend on the size of the view.
-        valShader = null;
-        satShader = null;
-        // Clear those bitmap caches since the size may have changed.
-        satValBackgroundCache = null;
         setUpSatValRect();
     }
 
@@ -431,7 +508,158 @@ public class SatView extends View {
         int top = dRect.top + BORDER_WIDTH_PX;
         int bottom = dRect.bottom - BORDER_WIDTH_PX;
         int right = dRect.right - BORDER_WIDTH_PX;
-        satValRect = new Rect(left, top, right, bottom);
+        satValPanel.setBounds(left, top, right, bottom);
+    }
+
+    /**
+     * Set how many hue buckets the sat/val panel is drawn for.
+     *
+     * @param buckets {@link #HUE_QUANTIZATION_NONE}, {@link #HUE_QUANTIZATION_DEGREE},
+     *                {@link #HUE_QUANTIZATION_HALF_DEGREE} or any positive number of buckets.
+     */
+    public void setHueQuantization(int buckets) {
+        if (buckets < 0) {
+            throw new IllegalArgumentException("The number of hue buckets can't be negative");
+        }
+        satValPanel.setHueQuantization(buckets);
+        invalidate();
+    }
+
+    public int getHueQuantization() {
+        return satValPanel.getHueQuantization();
+    }
+
+    /**
+     * Draw the panels of the neighbor hue buckets in the background.
+     * Only used when the hue is quantized.
+     */
+    public void setPrefetchHues(boolean prefetch) {
+        satValPanel.setPrefetchHues(prefetch);
+    }
+
+    /**
+     * Set how the sat/val panel is drawn.
+     * <p>
+     * {@link #RENDER_MODE_SHADER} skips the intermediate bitmap, it saves a panel sized bitmap
+     * and the software rasterization on every hue change. On hardware accelerated canvases before
+     * {@link Build.VERSION_CODES#P} it falls back to the bitmap path.
+     *
+     * @param renderMode {@link #RENDER_MODE_BITMAP} or {@link #RENDER_MODE_SHADER}.
+     */
+    public void setRenderMode(int renderMode) {
+        satValPanel.setRenderMode(renderMode);
+        invalidate();
+    }
+
+    public int getRenderMode() {
+        return satValPanel.getRenderMode();
+    }
+
+    /**
+     * Set how the panel bitmaps are stored, see {@link BitmapStrategy}. Only used by
+     * {@link #RENDER_MODE_BITMAP}.
+     *
+     * @param strategy {@link BitmapStrategy#BITMAP_ARGB_8888}, {@link BitmapStrategy#BITMAP_RGB_565}
+     *                 or {@link BitmapStrategy#BITMAP_HARDWARE}.
+     */
+    public void setBitmapStrategy(int strategy) {
+        satValPanel.setBitmapStrategy(strategy);
+        invalidate();
+    }
+
+    public int getBitmapStrategy() {
+        return satValPanel.getBitmapStrategy();
+    }
+
+    /**
+     * Set the panel size, in pixels, from which the panel is computed on several cores.
+     * Defaults to {@link GradientRasterizer#DEFAULT_PARALLEL_THRESHOLD}, the panel is computed on a
+     * single thread. Measure the device before opting in.
+     */
+    public void setParallelThreshold(int pixels) {
+        satValPanel.setParallelThreshold(pixels);
+    }
+
+    public int getParallelThreshold() {
+        return satValPanel.getParallelThreshold();
+    }
+
+    /**
+     * Generate the sat/val panel on a background thread. While a new panel is
+     * generated the view keeps drawing the previous one.
+     */
+    public void setAsyncRendering(boolean async) {
+        satValPanel.setAsyncRendering(async);
+        invalidate();
+    }
+
+    public boolean isAsyncRendering() {
+        return satValPanel.isAsyncRendering();
+    }
+
+    /**
+     * Set how the changes made by touch are delivered to the listener.
+     *
+     * @param dispatchMode {@link FrameCoalescer#DISPATCH_IMMEDIATE} or {@link FrameCoalescer#DISPATCH_PER_FRAME}.
+     */
+    public void setDispatchMode(int dispatchMode) {
+        this.dispatchMode = dispatchMode;
+        if (dispatchMode == FrameCoalescer.DISPATCH_IMMEDIATE) {
+            coalescer.flush();
+        }
+    }
+
+    public int getDispatchMode() {
+        return dispatchMode;
+    }
+
+    /**
+     * With {@link FrameCoalescer#DISPATCH_PER_FRAME}, deliver the value the finger was
+     * lifted at right away instead of on the next frame. True by default.
+     */
+    public void setFlushOnRelease(boolean flushOnRelease) {
+        this.flushOnRelease = flushOnRelease;
+    }
+
+    public boolean isFlushOnRelease() {
+        return flushOnRelease;
+    }
+
+    /**
+     * Get the samples of the drags, with their velocity, along with the color changes made by touch.
+     * Follows the dispatch mode of the view.
+     */
+    public void setOnDragTrajectoryListener(DragTrajectoryListener listener) {
+        dragTrajectoryListener = listener;
+    }
+
+    /**
+     * @return the draw, rebuild and dispatch counts of this view, recorded while
+     * {@link PickerStats#setEnabled(boolean)} is on.
+     */
+    public PickerStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Bind the view to a color shared with other views. The view shows the state, and writes
+     * the components it edits to it, following the dispatch mode of the view.
+     * Unbind with null if the state outlives the view.
+     */
+    public void setState(ColorPickerState state) {
+        if (this.state != null) {
+            this.state.removeObserver(stateObserver);
+        }
+        this.state = state;
+        if (state != null) {
+            state.addObserver(stateObserver);
+            readState(ColorPickerState.CHANGED_ALL);
+            invalidate();
+        }
+    }
+
+    public ColorPickerState getState() {
+        return state;
     }
 
     /**
@@ -450,7 +678,7 @@ public class SatView extends View {
      * @return the current color.
      */
     public int getColor() {
-        return Color.HSVToColor(alpha, new float[]{hue, sat, val});
+        return HsvMath.hsvToColor(alpha, hue, sat, val);
     }
 
     /**
@@ -462,21 +690,23 @@ public class SatView extends View {
     public void setColor(int color, boolean callback) {
         this.callBack = callback;
         int alpha = Color.alpha(color);
-        int red = Color.red(color);
-        int blue = Color.blue(color);
-        int green = Color.green(color);
-
-        float[] hsv = new float[3];
+        float[] hsv = hsvScratch;
 
-        Color.RGBToHSV(red, green, blue, hsv);
+        HsvMath.colorToHsv(color, hsv);
 
         this.alpha = alpha;
         hue = hsv[0];
         sat = hsv[1];
         val = hsv[2];
 
+        if (state != null) {
+            // Keeps the hue of gray colors and updates the other bound views.
+            state.setColor(color, this);
+            readState(ColorPickerState.CHANGED_ALL);
+        }
+
         if (callBack && onSatChangedListener != null) {
-            onSatChangedListener.onSatChange(new ColorEnvelope(Color.HSVToColor(alpha, new float[]{hue, sat, val})), true);
+            onSatChangedListener.onSatChange(envelope.set(getColor()), true);
         }
 
         invalidate();
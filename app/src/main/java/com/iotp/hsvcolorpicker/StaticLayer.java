@@ -0,0 +1,83 @@
+package com.iotp.hsvcolorpicker;
+
+import android.graphics.Canvas;
+import android.graphics.RecordingCanvas;
+import android.graphics.RenderNode;
+import android.os.Build;
+
+import androidx.annotation.ChecksSdkIntAtLeast;
+import androidx.annotation.RequiresApi;
+
+/**
+ * Keeps the parts of a picker view that do not follow the finger (border, gradient, checkerboard)
+ * in a retained RenderNode.
+ * <p>
+ * The node is only recorded again after {@link #invalidate()} or a size change, every other frame
+ * replays it with a single draw op and only the thumb is recorded. Hardware accelerated canvases
+ * on {@link Build.VERSION_CODES#Q} and later only, see {@link #canDraw(Canvas)}; elsewhere the
+ * views keep drawing everything directly.
+ */
+public final class StaticLayer {
+
+    /**
+     * Draws the static content, called while the node is recorded.
+     */
+    public interface Recorder {
+        void record(Canvas canvas);
+    }
+
+    private final RenderNode node;
+    private final Recorder recorder;
+    private boolean valid;
+
+    @RequiresApi(Build.VERSION_CODES.Q)
+    public StaticLayer(String name, Recorder recorder) {
+        this.node = new RenderNode(name);
+        this.recorder = recorder;
+    }
+
+    /**
+     * @return true if a static layer can be drawn on the canvas.
+     */
+    @ChecksSdkIntAtLeast(api = Build.VERSION_CODES.Q)
+    public static boolean canDraw(Canvas canvas) {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && canvas.isHardwareAccelerated()
+                && canvas instanceof RecordingCanvas;
+    }
+
+    /**
+     * Record the content again on the next draw.
+     */
+    public void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * Draw the layer, recording it first if it is invalid or the size changed.
+     *
+     * @param canvas a canvas accepted by {@link #canDraw(Canvas)}.
+     */
+    @RequiresApi(Build.VERSION_CODES.Q)
+    public void draw(Canvas canvas, int width, int height) {
+        if (!valid || node.getWidth() != width || node.getHeight() != height) {
+            node.setPosition(0, 0, width, height);
+            RecordingCanvas recordingCanvas = node.beginRecording(width, height);
+            try {
+                recorder.record(recordingCanvas);
+            } finally {
+                node.endRecording();
+            }
+            valid = true;
+        }
+        ((RecordingCanvas) canvas).drawRenderNode(node);
+    }
+
+    /**
+     * Free the display list, e.g. when the view is detached. It is recorded again on the next draw.
+     */
+    @RequiresApi(Build.VERSION_CODES.Q)
+    public void discard() {
+        node.discardDisplayList();
+        valid = false;
+    }
+}
@@ -0,0 +1,7 @@
+package com.iotp.hsvcolorpicker.event
+
+import com.iotp.hsvcolorpicker.engine.ColorEnvelope
+
+interface ColorPickerChangedListener {
+    fun onColorChanged(colorEnvelope: ColorEnvelope, fromUser: Boolean)
+}
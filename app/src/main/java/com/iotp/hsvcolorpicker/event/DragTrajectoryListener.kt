@@ -0,0 +1,8 @@
+package com.iotp.hsvcolorpicker.event
+
+import android.view.View
+import com.iotp.hsvcolorpicker.engine.DragTrajectory
+
+interface DragTrajectoryListener {
+    fun onDragTrajectory(view: View, trajectory: DragTrajectory)
+}
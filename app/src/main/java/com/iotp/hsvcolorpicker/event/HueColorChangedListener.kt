@@ -1,6 +1,6 @@
 package com.iotp.hsvcolorpicker.event
 
-import com.iotp.hsvcolorpicker.ColorEnvelope
+import com.iotp.hsvcolorpicker.engine.ColorEnvelope
 
 interface HueColorChangedListener {
     fun onHueChanged(colorEnvelope: ColorEnvelope)
@@ -5,6 +5,7 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Point;
+import android.graphics.Rect;
 import android.util.DisplayMetrics;
 import android.util.TypedValue;
 
@@ -26,5 +27,12 @@ public final class DrawingUtils {
         paint.setColor(secondColor);
         canvas.drawCircle(point.x, point.y, radius * 0.5f, paint);
     }
-}
 
+    /**
+     * Bounds of a thumb drawn by {@link #drawnThumb}, with a pixel of margin for the anti aliasing.
+     */
+    public static void thumbBounds(Point point, float radius, Rect out) {
+        int r = (int) Math.ceil(radius) + 1;
+        out.set(point.x - r, point.y - r, point.x + r, point.y + r);
+    }
+}
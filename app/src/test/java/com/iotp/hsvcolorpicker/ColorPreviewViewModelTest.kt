@@ -0,0 +1,77 @@
+package com.iotp.hsvcolorpicker
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.util.concurrent.CountDownLatch
+import kotlin.concurrent.thread
+
+class ColorPreviewViewModelTest {
+
+    @Test
+    fun setChannel_keepsTheOtherChannels() {
+        val viewModel = ColorPreviewViewModel()
+        viewModel.setColor(0x80112233.toInt())
+
+        viewModel.setRed(0xAA)
+        assertEquals(0x80AA2233.toInt(), viewModel.color.value)
+        viewModel.setAlpha(0xFF)
+        viewModel.setGreen(0x00)
+        viewModel.setBlue(0x01)
+        assertEquals(0xFFAA0001.toInt(), viewModel.color.value)
+    }
+
+    @Test
+    fun setChannel_concurrentEditsAreNotLost() {
+        val viewModel = ColorPreviewViewModel()
+        viewModel.setColor(0)
+        val setters = listOf(viewModel::setAlpha, viewModel::setRed, viewModel::setGreen, viewModel::setBlue)
+        val start = CountDownLatch(1)
+        val threads = setters.map { setter ->
+            thread {
+                start.await()
+                for (i in 0..10_000) {
+                    setter(i and 0xFF)
+                }
+                setter(0xFF)
+            }
+        }
+        start.countDown()
+        threads.forEach { it.join() }
+
+        assertEquals(0xFFFFFFFF.toInt(), viewModel.color.value)
+    }
+
+    @Test
+    fun parseDecimal_rejectsInvalidText() {
+        assertEquals(0, ColorPreviewViewModel.parseDecimal("0", 255))
+        assertEquals(255, ColorPreviewViewModel.parseDecimal("255", 255))
+        assertEquals(-1, ColorPreviewViewModel.parseDecimal("256", 255))
+        assertEquals(-1, ColorPreviewViewModel.parseDecimal("", 255))
+        assertEquals(-1, ColorPreviewViewModel.parseDecimal("1a", 255))
+        assertEquals(-1, ColorPreviewViewModel.parseDecimal("99999999999", 255))
+    }
+
+    @Test
+    fun colorWith_appliesTheEdit() {
+        val viewModel = ColorPreviewViewModel()
+        viewModel.setColor(0xFF102030.toInt())
+
+        assertEquals(0xFF7F2030.toInt(), viewModel.colorWithRed("127"))
+        assertEquals(0xFF100030.toInt(), viewModel.colorWithGreen("0"))
+        assertEquals(0xFF1020FF.toInt(), viewModel.colorWithBlue("255"))
+        assertEquals(0x80102030.toInt(), viewModel.colorWithAlphaPercent("50"))
+        assertEquals(0xFFABCDEF.toInt(), viewModel.colorWithHex("ABCDEF"))
+    }
+
+    @Test
+    fun colorWith_invalidOrShownTextKeepsTheColor() {
+        val viewModel = ColorPreviewViewModel()
+        val color = 0xC8102030.toInt()
+        viewModel.setColor(color)
+
+        assertEquals(color, viewModel.colorWithRed("300"))
+        assertEquals(color, viewModel.colorWithHex("12345"))
+        // 200 is shown as 79%, which parses back to 201.
+        assertEquals(color, viewModel.colorWithAlphaPercent("79"))
+    }
+}
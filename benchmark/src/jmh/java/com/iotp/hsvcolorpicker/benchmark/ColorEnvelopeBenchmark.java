@@ -0,0 +1,63 @@
+package com.iotp.hsvcolorpicker.benchmark;
+
+import com.iotp.hsvcolorpicker.engine.ColorEnvelope;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * A ColorEnvelope is created for every touch move of the picker views.
+ */
+@State(Scope.Thread)
+public class ColorEnvelopeBenchmark {
+
+    private int[] colors;
+    private int index;
+    private final ColorEnvelope reused = new ColorEnvelope(0);
+
+    @Setup
+    public void setUp() {
+        colors = Colors.argb();
+    }
+
+    /** A listener only reading the color. */
+    @Benchmark
+    public int create() {
+        return new ColorEnvelope(colors[index++ & Colors.MASK]).getColor();
+    }
+
+    /** A listener reading everything, like MainActivity and ColorPreview. */
+    @Benchmark
+    public void createAndReadAll(Blackhole blackhole) {
+        ColorEnvelope envelope = new ColorEnvelope(colors[index++ & Colors.MASK]);
+        blackhole.consume(envelope.getHexCode());
+        blackhole.consume(envelope.getAlphaColor());
+        blackhole.consume(envelope.getRedColor());
+        blackhole.consume(envelope.getGreenColor());
+        blackhole.consume(envelope.getBlueColor());
+        blackhole.consume(envelope.getHueColor());
+        blackhole.consume(envelope.formatAlphaValue());
+    }
+
+    /** The picker views reuse one envelope, listener only reading the color. */
+    @Benchmark
+    public int reuse() {
+        return reused.set(colors[index++ & Colors.MASK]).getColor();
+    }
+
+    /** The picker views reuse one envelope, listener reading everything. */
+    @Benchmark
+    public void reuseAndReadAll(Blackhole blackhole) {
+        ColorEnvelope envelope = reused.set(colors[index++ & Colors.MASK]);
+        blackhole.consume(envelope.getHexCode());
+        blackhole.consume(envelope.getAlphaColor());
+        blackhole.consume(envelope.getRedColor());
+        blackhole.consume(envelope.getGreenColor());
+        blackhole.consume(envelope.getBlueColor());
+        blackhole.consume(envelope.getHueColor());
+        blackhole.consume(envelope.formatAlphaValue());
+    }
+}
@@ -0,0 +1,46 @@
+package com.iotp.hsvcolorpicker.benchmark;
+
+import com.iotp.hsvcolorpicker.engine.ColorUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+public class ColorUtilsBenchmark {
+
+    private int[] colors;
+    private String[] hex3;
+    private String[] hex6;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        colors = Colors.argb();
+        hex3 = Colors.hex(3);
+        hex6 = Colors.hex(6);
+    }
+
+    @Benchmark
+    public String getHexCode() {
+        return ColorUtils.getHexCode(colors[index++ & Colors.MASK]);
+    }
+
+    @Benchmark
+    public int[] getColorARGB() {
+        return ColorUtils.getColorARGB(colors[index++ & Colors.MASK]);
+    }
+
+    /** Same parsing as ColorPreviewViewModel.parseHexColorToInt. */
+    @Benchmark
+    public long parseHex3() {
+        return ColorUtils.parseHexColor(hex3[index++ & Colors.MASK]);
+    }
+
+    /** Same parsing as ColorPreviewViewModel.parseHexColorToInt. */
+    @Benchmark
+    public long parseHex6() {
+        return ColorUtils.parseHexColor(hex6[index++ & Colors.MASK]);
+    }
+}
@@ -0,0 +1,43 @@
+package com.iotp.hsvcolorpicker.benchmark;
+
+import java.util.Random;
+
+/**
+ * Shared inputs so every benchmark cycles over the same pseudo random colors.
+ */
+final class Colors {
+
+    static final int COUNT = 1024;
+    static final int MASK = COUNT - 1;
+
+    private Colors() {
+    }
+
+    static int[] argb() {
+        Random random = new Random(42);
+        int[] colors = new int[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            colors[i] = random.nextInt();
+        }
+        return colors;
+    }
+
+    static float[][] hsv() {
+        Random random = new Random(42);
+        float[][] hsv = new float[COUNT][];
+        for (int i = 0; i < COUNT; i++) {
+            hsv[i] = new float[]{random.nextFloat() * 360f, random.nextFloat(), random.nextFloat()};
+        }
+        return hsv;
+    }
+
+    static String[] hex(int digits) {
+        int[] colors = argb();
+        String[] hex = new String[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            String full = String.format("%08X", colors[i]);
+            hex[i] = "#" + full.substring(8 - digits);
+        }
+        return hex;
+    }
+}
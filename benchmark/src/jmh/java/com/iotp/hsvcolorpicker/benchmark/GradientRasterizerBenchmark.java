@@ -0,0 +1,56 @@
+package com.iotp.hsvcolorpicker.benchmark;
+
+import com.iotp.hsvcolorpicker.engine.GradientRasterizer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Scaling of the gradient fill with the number of threads, for a phone, a tablet and an
+ * external display sized panel. 1 thread is the single threaded path, without any pool.
+ */
+@State(Scope.Thread)
+public class GradientRasterizerBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"720", "1440", "2880"})
+    public int size;
+
+    private int[] pixels;
+    private ForkJoinPool pool;
+    private float hue;
+
+    @Setup
+    public void setUp() {
+        pixels = new int[size * size];
+        pool = threads > 1 ? new ForkJoinPool(threads) : null;
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public int[] fillSatVal() {
+        hue = (hue + 1f) % 360f;
+        GradientRasterizer.fillSatVal(pixels, size, size, hue, pool, 0);
+        return pixels;
+    }
+
+    @Benchmark
+    public int[] fillHue() {
+        GradientRasterizer.fillHue(pixels, size, size / 16, pool, 0);
+        return pixels;
+    }
+}
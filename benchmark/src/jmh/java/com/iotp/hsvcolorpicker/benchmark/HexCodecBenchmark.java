@@ -0,0 +1,93 @@
+package com.iotp.hsvcolorpicker.benchmark;
+
+import com.iotp.hsvcolorpicker.engine.HexCodec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Locale;
+
+/**
+ * {@link HexCodec} against the String.format / toInt(16) code it replaced.
+ */
+@State(Scope.Thread)
+public class HexCodecBenchmark {
+
+    private int[] colors;
+    private String[] hex3;
+    private String[] hex8;
+    private final char[] chars = new char[8];
+    private final StringBuilder builder = new StringBuilder(9);
+    private int index;
+
+    @Setup
+    public void setUp() {
+        colors = Colors.argb();
+        hex3 = Colors.hex(3);
+        hex8 = Colors.hex(8);
+    }
+
+    /** Former ColorUtils.getHexCode. */
+    @Benchmark
+    public String encodeLegacy() {
+        int color = colors[index++ & Colors.MASK];
+        return String.format(Locale.getDefault(), "%02X%02X%02X%02X",
+                color >>> 24, (color >> 16) & 0xFF, (color >> 8) & 0xFF, color & 0xFF);
+    }
+
+    @Benchmark
+    public char[] encodeChars() {
+        HexCodec.encodeArgb(colors[index++ & Colors.MASK], chars, 0);
+        return chars;
+    }
+
+    /** Former ColorPanelView.showHint. */
+    @Benchmark
+    public String hintLegacy() {
+        int color = colors[index++ & Colors.MASK];
+        return "#" + String.format("%06X", 0xFFFFFF & color).toUpperCase(Locale.ENGLISH);
+    }
+
+    @Benchmark
+    public StringBuilder hint() {
+        builder.setLength(0);
+        return HexCodec.appendRgb(builder.append('#'), colors[index++ & Colors.MASK]);
+    }
+
+    /** Former ColorPreviewViewModel.parseHexColorToInt. */
+    @Benchmark
+    public int parseHex3Legacy() {
+        String hex = trimHash(hex3[index++ & Colors.MASK]);
+        StringBuilder doubled = new StringBuilder(6);
+        for (int i = 0; i < hex.length(); i++) {
+            doubled.append(hex.charAt(i)).append(hex.charAt(i));
+        }
+        return Integer.parseInt(doubled.toString(), 16);
+    }
+
+    @Benchmark
+    public long parseHex3() {
+        return HexCodec.parse(hex3[index++ & Colors.MASK]);
+    }
+
+    /** Former ColorPreviewViewModel.parseHexColorToInt, which overflowed on most 8 digits colors. */
+    @Benchmark
+    public long parseHex8Legacy() {
+        return Long.parseLong(trimHash(hex8[index++ & Colors.MASK]), 16);
+    }
+
+    @Benchmark
+    public long parseHex8() {
+        return HexCodec.parse(hex8[index++ & Colors.MASK]);
+    }
+
+    private static String trimHash(String hex) {
+        int start = 0;
+        while (start < hex.length() && hex.charAt(start) == '#') {
+            start++;
+        }
+        return hex.substring(start);
+    }
+}
@@ -0,0 +1,49 @@
+package com.iotp.hsvcolorpicker.benchmark;
+
+import com.iotp.hsvcolorpicker.engine.ColorUtils;
+import com.iotp.hsvcolorpicker.engine.HsvMath;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * HSV to RGB and back, as done on every touch event and draw of the picker views.
+ */
+@State(Scope.Thread)
+public class HsvConversionBenchmark {
+
+    private int[] colors;
+    private float[][] hsv;
+    private final float[] scratch = new float[3];
+    private int index;
+
+    @Setup
+    public void setUp() {
+        colors = Colors.argb();
+        hsv = Colors.hsv();
+    }
+
+    @Benchmark
+    public int hsvToColor() {
+        float[] c = hsv[index++ & Colors.MASK];
+        return HsvMath.hsvToColor(0xFF, c[0], c[1], c[2]);
+    }
+
+    @Benchmark
+    public float[] colorToHsvScratch() {
+        HsvMath.colorToHsv(colors[index++ & Colors.MASK], scratch);
+        return scratch;
+    }
+
+    @Benchmark
+    public float[] argbToHsv() {
+        return ColorUtils.argbToHsv(colors[index++ & Colors.MASK]);
+    }
+
+    @Benchmark
+    public float hue() {
+        return HsvMath.hue(colors[index++ & Colors.MASK]);
+    }
+}
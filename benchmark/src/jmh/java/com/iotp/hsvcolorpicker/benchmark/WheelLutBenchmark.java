@@ -0,0 +1,76 @@
+package com.iotp.hsvcolorpicker.benchmark;
+
+import com.iotp.hsvcolorpicker.engine.HsvMath;
+import com.iotp.hsvcolorpicker.engine.WheelLut;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The color wheel filled from the polar tables against atan2 and sqrt per pixel, and the cost
+ * of a touch mapped through the tables against the same math per event.
+ */
+@State(Scope.Thread)
+public class WheelLutBenchmark {
+
+    @Param({"720", "1440"})
+    public int size;
+
+    private int[] pixels;
+    private WheelLut lut;
+    private float touch;
+
+    @Setup
+    public void setUp() {
+        pixels = new int[size * size];
+        lut = WheelLut.create(size);
+    }
+
+    @Benchmark
+    public int[] fillFromTables() {
+        lut.fill(pixels);
+        return pixels;
+    }
+
+    @Benchmark
+    public int[] fillPolarMath() {
+        final float radius = size / 2f;
+        for (int y = 0; y < size; y++) {
+            final float dy = radius - (y + 0.5f);
+            for (int x = 0; x < size; x++) {
+                final float dx = (x + 0.5f) - radius;
+                final float sat = (float) Math.sqrt(dx * dx + dy * dy) / radius;
+                if (sat > 1f) {
+                    pixels[y * size + x] = 0;
+                    continue;
+                }
+                float hue = (float) Math.toDegrees(Math.atan2(dy, dx));
+                if (hue < 0f) {
+                    hue += 360f;
+                }
+                pixels[y * size + x] = HsvMath.hsvToColor(hue, sat, 1f);
+            }
+        }
+        return pixels;
+    }
+
+    @Benchmark
+    public float touchFromTables() {
+        touch = (touch + 7.3f) % size;
+        return lut.hueAt(touch, size - touch) + lut.satAt(touch, size - touch);
+    }
+
+    @Benchmark
+    public float touchPolarMath() {
+        touch = (touch + 7.3f) % size;
+        final float radius = size / 2f;
+        final float dx = touch - radius;
+        final float dy = radius - (size - touch);
+        final float hue = (float) Math.toDegrees(Math.atan2(dy, dx));
+        final float sat = Math.min((float) Math.sqrt(dx * dx + dy * dy) / radius, 1f);
+        return (hue < 0f ? hue + 360f : hue) + sat;
+    }
+}
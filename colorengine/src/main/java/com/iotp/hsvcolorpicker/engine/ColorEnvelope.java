@@ -0,0 +1,133 @@
+package com.iotp.hsvcolorpicker.engine;
+
+import androidx.annotation.ColorInt;
+
+/**
+ * Wraps a color and the values derived from it.
+ * <p>
+ * The hex code, the argb array and the hsv components are only computed the first time
+ * they are read, then cached until the envelope is {@link #set(int) set} to another color.
+ * The picker views reuse one envelope for all their callbacks, listeners must copy the
+ * values they want to keep.
+ */
+public class ColorEnvelope {
+
+    @ColorInt
+    private int color;
+    private String hexCode;
+    private int[] argb;
+    private boolean argbValid;
+    private float[] hsv;
+    private boolean hsvValid;
+
+    public ColorEnvelope(@ColorInt int color) {
+        this.color = color;
+    }
+
+    /**
+     * Reuse this envelope for another color, the cached values are dropped if the color changed.
+     *
+     * @return this envelope.
+     */
+    public ColorEnvelope set(@ColorInt int color) {
+        if (this.color != color) {
+            this.color = color;
+            hexCode = null;
+            argbValid = false;
+            hsvValid = false;
+        }
+        return this;
+    }
+
+    /**
+     * gets envelope's color.
+     *
+     * @return color.
+     */
+    public @ColorInt int getColor() {
+        return color;
+    }
+
+    /**
+     * gets envelope's hex code value.
+     *
+     * @return hex code.
+     */
+    public String getHexCode() {
+        if (hexCode == null) {
+            hexCode = ColorUtils.getHexCode(color);
+        }
+        return hexCode;
+    }
+
+    /**
+     * gets envelope's argb color.
+     *
+     * @return argb integer array.
+     */
+    public int[] getArgb() {
+        if (!argbValid) {
+            if (argb == null) {
+                argb = new int[4];
+            }
+            argb[0] = ColorUtils.alpha(color);
+            argb[1] = ColorUtils.red(color);
+            argb[2] = ColorUtils.green(color);
+            argb[3] = ColorUtils.blue(color);
+            argbValid = true;
+        }
+        return argb;
+    }
+
+    public int getAlphaColor() {
+        return ColorUtils.alpha(color);
+    }
+
+    /**
+     * @return hue color
+     */
+    public int getHueColor() {
+        return (int) hsv()[0];
+    }
+
+    public  int getRedColor(){
+        return  ColorUtils.red(color);
+    }
+    public  int getGreenColor(){
+        return  ColorUtils.green(color);
+    }
+    public  int getBlueColor(){
+        return  ColorUtils.blue(color);
+    }
+
+    /**
+     * @return sat color
+     */
+    public int getSatColor() {
+      return   (int) hsv()[1];
+    }
+
+    /**
+     * @return val color
+     */
+    public int getValColor() {
+      return   (int) hsv()[2];
+    }
+
+    private float[] hsv() {
+        if (!hsvValid) {
+            if (hsv == null) {
+                hsv = new float[3];
+            }
+            HsvMath.colorToHsv(color, hsv);
+            hsvValid = true;
+        }
+        return hsv;
+    }
+
+    public String formatAlphaValue() {
+        double result = Math.ceil(getAlphaColor() / (double) ColorUtils.MAX_ALPHA * 100);
+        return String.valueOf((int) result);
+    }
+}
+
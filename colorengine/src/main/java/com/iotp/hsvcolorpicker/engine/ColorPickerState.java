@@ -0,0 +1,183 @@
+package com.iotp.hsvcolorpicker.engine;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+
+/**
+ * The color edited by a set of picker views, kept as one canonical hue, saturation, value and alpha.
+ * <p>
+ * Views bound with setState write the components they edit and observe the others, instead of
+ * being wired to each other through their listeners. The components are never re-derived from a
+ * packed color, so the hue survives a drag through gray or black. Every component has a version
+ * stamp, bumped when it actually changes, and observers get a mask of the changed components so
+ * they only redraw what depends on them. Must be used from the main thread.
+ */
+public final class ColorPickerState {
+
+    public final static int CHANGED_HUE = 1;
+    public final static int CHANGED_SAT = 1 << 1;
+    public final static int CHANGED_VAL = 1 << 2;
+    public final static int CHANGED_ALPHA = 1 << 3;
+    public final static int CHANGED_ALL = CHANGED_HUE | CHANGED_SAT | CHANGED_VAL | CHANGED_ALPHA;
+
+    public interface Observer {
+        /**
+         * @param changes mask of the CHANGED_ constants, never 0.
+         * @param source  the object that made the change, e.g. the view being dragged, may be null.
+         */
+        void onStateChanged(ColorPickerState state, int changes, @Nullable Object source);
+    }
+
+    private static final Observer[] NO_OBSERVERS = new Observer[0];
+
+    private float hue = 0f;
+    private float sat = 0f;
+    private float val = 0f;
+    private int alpha = 0xFF;
+
+    private int version;
+    private int hueVersion;
+    private int satVersion;
+    private int valVersion;
+    private int alphaVersion;
+
+    @ColorInt
+    private int color = 0xFF000000;
+    private int colorVersion;
+
+    private final ArrayList<Observer> observers = new ArrayList<>();
+    /* Copy of the observers, so they can be added or removed during a notification. */
+    private Observer[] snapshot = NO_OBSERVERS;
+    private final float[] hsvScratch = new float[3];
+
+    public void addObserver(Observer observer) {
+        if (!observers.contains(observer)) {
+            observers.add(observer);
+            snapshot = observers.toArray(NO_OBSERVERS);
+        }
+    }
+
+    public void removeObserver(Observer observer) {
+        if (observers.remove(observer)) {
+            snapshot = observers.toArray(NO_OBSERVERS);
+        }
+    }
+
+    public float getHue() {
+        return hue;
+    }
+
+    public float getSat() {
+        return sat;
+    }
+
+    public float getVal() {
+        return val;
+    }
+
+    public int getAlpha() {
+        return alpha;
+    }
+
+    /**
+     * @return the packed color, only converted again when a component changed.
+     */
+    @ColorInt
+    public int getColor() {
+        if (colorVersion != version) {
+            color = HsvMath.hsvToColor(alpha, hue, sat, val);
+            colorVersion = version;
+        }
+        return color;
+    }
+
+    /**
+     * @return a stamp that changes whenever any component changes.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    public int getHueVersion() {
+        return hueVersion;
+    }
+
+    public int getSatVersion() {
+        return satVersion;
+    }
+
+    public int getValVersion() {
+        return valVersion;
+    }
+
+    public int getAlphaVersion() {
+        return alphaVersion;
+    }
+
+    public void setHue(float hue, @Nullable Object source) {
+        set(hue, sat, val, alpha, source);
+    }
+
+    public void setSatVal(float sat, float val, @Nullable Object source) {
+        set(hue, sat, val, alpha, source);
+    }
+
+    public void setAlpha(int alpha, @Nullable Object source) {
+        set(hue, sat, val, alpha, source);
+    }
+
+    /**
+     * Set the state from a packed color. The current hue is kept when the color is gray,
+     * and the current saturation too when it is black, as the color does not carry them.
+     */
+    public void setColor(@ColorInt int color, @Nullable Object source) {
+        final float[] hsv = hsvScratch;
+        HsvMath.colorToHsv(color, hsv);
+        float newHue = hsv[0];
+        float newSat = hsv[1];
+        if (hsv[2] == 0f) {
+            newHue = hue;
+            newSat = sat;
+        } else if (newSat == 0f) {
+            newHue = hue;
+        }
+        set(newHue, newSat, hsv[2], color >>> 24, source);
+    }
+
+    /**
+     * Set every component, observers are only notified if one of them changed.
+     */
+    public void set(float hue, float sat, float val, int alpha, @Nullable Object source) {
+        int changes = 0;
+        if (Float.compare(this.hue, hue) != 0) {
+            this.hue = hue;
+            hueVersion = version + 1;
+            changes |= CHANGED_HUE;
+        }
+        if (Float.compare(this.sat, sat) != 0) {
+            this.sat = sat;
+            satVersion = version + 1;
+            changes |= CHANGED_SAT;
+        }
+        if (Float.compare(this.val, val) != 0) {
+            this.val = val;
+            valVersion = version + 1;
+            changes |= CHANGED_VAL;
+        }
+        if (this.alpha != alpha) {
+            this.alpha = alpha;
+            alphaVersion = version + 1;
+            changes |= CHANGED_ALPHA;
+        }
+        if (changes == 0) {
+            return;
+        }
+        version++;
+        final Observer[] observers = snapshot;
+        for (Observer observer : observers) {
+            observer.onStateChanged(this, changes, source);
+        }
+    }
+}
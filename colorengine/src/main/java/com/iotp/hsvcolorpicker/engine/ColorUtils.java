@@ -0,0 +1,64 @@
+package com.iotp.hsvcolorpicker.engine;
+
+import androidx.annotation.ColorInt;
+
+/**
+ * Color helpers. Plain java (no android.graphics) so they can be benchmarked on a desktop jvm.
+ */
+public class ColorUtils {
+    /** Alpha of an opaque color. */
+    public static final int MAX_ALPHA = 255;
+
+    /** @return the color as 8 upper case hex digits, AARRGGBB. */
+    public static String getHexCode(@ColorInt int color) {
+        char[] hex = new char[8];
+        HexCodec.encodeArgb(color, hex, 0);
+        return new String(hex);
+    }
+
+    /** changes color to argb integer array. */
+    public static int[] getColorARGB(@ColorInt int color) {
+        int[] argb = new int[4];
+        argb[0] = alpha(color);
+        argb[1] = red(color);
+        argb[2] = green(color);
+        argb[3] = blue(color);
+        return argb;
+    }
+
+    /**
+     * Parse a 3, 4, 6 or 8 digits hex color, with or without leading '#'. See {@link HexCodec#parse(CharSequence)}.
+     *
+     * @return the color, or {@link HexCodec#INVALID} if the text is not a hex color.
+     */
+    public static long parseHexColor(CharSequence hexColor) {
+        return HexCodec.parse(hexColor);
+    }
+
+    public static int alpha(@ColorInt int color) {
+        return color >>> 24;
+    }
+
+    public static int red(@ColorInt int color) {
+        return (color >> 16) & 0xFF;
+    }
+
+    public static int green(@ColorInt int color) {
+        return (color >> 8) & 0xFF;
+    }
+
+    public static int blue(@ColorInt int color) {
+        return color & 0xFF;
+    }
+    public  static float[] argbToHsv(int argbColor){
+        float[]  hsv = new float[3];
+        HsvMath.colorToHsv(argbColor, hsv);
+        return  hsv;
+    }
+
+    /** same as {@link #argbToHsv(int)} but writes into a caller owned array. */
+    public static float[] argbToHsv(int argbColor, float[] outHsv) {
+        HsvMath.colorToHsv(argbColor, outHsv);
+        return outHsv;
+    }
+}
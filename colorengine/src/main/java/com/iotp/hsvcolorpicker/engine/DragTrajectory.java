@@ -0,0 +1,143 @@
+package com.iotp.hsvcolorpicker.engine;
+
+/**
+ * Recent samples of a drag on one of the picker views, in the value space of the view:
+ * hue and 0 for the hue slider, saturation and value for the sat/val panel, alpha and 0 for
+ * the alpha slider.
+ * <p>
+ * The views feed every sample of a MotionEvent, including the historical ones batched by the
+ * system between two frames, so the velocity stays accurate on fast flings even though the
+ * view only redraws once per frame. The trajectory is owned and reused by the view, it is only
+ * valid during the listener call.
+ */
+public final class DragTrajectory {
+
+    private static final int CAPACITY = 32;
+    /* Samples older than this, relative to the latest one, are ignored by the velocity. */
+    private static final long VELOCITY_WINDOW_MS = 100;
+
+    private final long[] times = new long[CAPACITY];
+    private final float[] xs = new float[CAPACITY];
+    private final float[] ys = new float[CAPACITY];
+    private int start;
+    private int count;
+
+    /**
+     * Drop every sample, called when a new drag starts.
+     */
+    public void reset() {
+        start = 0;
+        count = 0;
+    }
+
+    /**
+     * Append a sample, the oldest one is dropped once 32 samples are kept.
+     */
+    public void add(long eventTimeMs, float x, float y) {
+        int index;
+        if (count < CAPACITY) {
+            index = (start + count) % CAPACITY;
+            count++;
+        } else {
+            index = start;
+            start = (start + 1) % CAPACITY;
+        }
+        times[index] = eventTimeMs;
+        xs[index] = x;
+        ys[index] = y;
+    }
+
+    /**
+     * @return the number of samples kept, the oldest ones are dropped past 32.
+     */
+    public int getSampleCount() {
+        return count;
+    }
+
+    /**
+     * @param i 0 for the oldest sample, {@link #getSampleCount()} - 1 for the latest.
+     */
+    public float getSampleX(int i) {
+        return xs[index(i)];
+    }
+
+    public float getSampleY(int i) {
+        return ys[index(i)];
+    }
+
+    /**
+     * @return the time of the sample in the {@code SystemClock.uptimeMillis()} time base of the events.
+     */
+    public long getSampleTime(int i) {
+        return times[index(i)];
+    }
+
+    /**
+     * @return the latest x value, the one the view is showing.
+     */
+    public float getX() {
+        return count == 0 ? 0f : xs[index(count - 1)];
+    }
+
+    public float getY() {
+        return count == 0 ? 0f : ys[index(count - 1)];
+    }
+
+    /**
+     * @return the x velocity in units per second, over the last 100ms of the drag.
+     */
+    public float getVelocityX() {
+        return velocity(xs);
+    }
+
+    public float getVelocityY() {
+        return velocity(ys);
+    }
+
+    /**
+     * Extrapolate the x value, e.g. to draw the thumb where the finger will be at the next vsync.
+     * The result is not clamped to the range of the view.
+     */
+    public float predictX(long aheadMs) {
+        return getX() + getVelocityX() * aheadMs / 1000f;
+    }
+
+    public float predictY(long aheadMs) {
+        return getY() + getVelocityY() * aheadMs / 1000f;
+    }
+
+    private int index(int i) {
+        return (start + i) % CAPACITY;
+    }
+
+    /* Least squares slope of the values over the velocity window. */
+    private float velocity(float[] values) {
+        if (count < 2) {
+            return 0f;
+        }
+        final long latest = times[index(count - 1)];
+        double sumT = 0;
+        double sumV = 0;
+        double sumTT = 0;
+        double sumTV = 0;
+        int n = 0;
+        for (int i = count - 1; i >= 0; i--) {
+            final int k = index(i);
+            final long age = latest - times[k];
+            if (age > VELOCITY_WINDOW_MS) {
+                break;
+            }
+            final double t = -age / 1000.0;
+            sumT += t;
+            sumV += values[k];
+            sumTT += t * t;
+            sumTV += t * values[k];
+            n++;
+        }
+        final double denominator = n * sumTT - sumT * sumT;
+        if (n < 2 || denominator == 0) {
+            return 0f;
+        }
+        return (float) ((n * sumTV - sumT * sumV) / denominator);
+    }
+}
@@ -0,0 +1,212 @@
+package com.iotp.hsvcolorpicker.engine;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fills plain int[] pixel buffers with the picker gradients,
+ * so a bitmap can be uploaded with a single setPixels call.
+ * Plain Java, safe to call from any thread.
+ */
+public final class GradientRasterizer {
+
+    /**
+     * Pixel count from which the views fill their gradients in parallel. The pool is off by default
+     * until GradientRasterizerBenchmark has been run on multi core devices, small buffers are filled
+     * faster than the tasks can be forked. Views opt in with a lower threshold, see
+     * SatView#setParallelThreshold.
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = Integer.MAX_VALUE;
+
+    /* Pixels of the smallest task, so the fork overhead stays small next to the work. */
+    private static final int MIN_TASK_PIXELS = 64 * 1024;
+
+    /* 4x4 Bayer matrix, thresholds 0 to 15. */
+    private static final int[] BAYER_4X4 = {
+            0, 8, 2, 10,
+            12, 4, 14, 6,
+            3, 11, 1, 9,
+            15, 7, 13, 5
+    };
+
+    private GradientRasterizer() {
+    }
+
+    /**
+     * Fill a width x height buffer with the hue spectrum.
+     * The hue runs along the longest side, 0 to 360.
+     * Only one line of colors is computed, the other lines are copies of it.
+     *
+     * @param pixels buffer of at least width * height elements, row major.
+     */
+    public static void fillHue(int[] pixels, int width, int height) {
+        fillHue(pixels, width, height, null, 0);
+    }
+
+    /**
+     * Same as {@link #fillHue(int[], int, int)}, the rows are split across the pool when the
+     * buffer has at least threshold pixels. The result is identical to the single threaded one.
+     *
+     * @param pool      pool to fill the rows in, null to always fill them on the calling thread.
+     * @param threshold pixel count from which the pool is used, see {@link #DEFAULT_PARALLEL_THRESHOLD}.
+     */
+    public static void fillHue(final int[] pixels, final int width, final int height,
+                               ForkJoinPool pool, int threshold) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        final Rows rows;
+        final int firstRow;
+        if (width > height) {
+            // One row of hues, copied to every row.
+            for (int x = 0; x < width; x++) {
+                pixels[x] = HsvMath.hsvToColor((x * 360f) / width, 1f, 1f);
+            }
+            firstRow = 1;
+            rows = new Rows() {
+                @Override
+                public void fill(int fromY, int toY) {
+                    for (int y = fromY; y < toY; y++) {
+                        System.arraycopy(pixels, 0, pixels, y * width, width);
+                    }
+                }
+            };
+        } else {
+            // One hue per row, every pixel of the row has the same color.
+            firstRow = 0;
+            rows = new Rows() {
+                @Override
+                public void fill(int fromY, int toY) {
+                    for (int y = fromY; y < toY; y++) {
+                        final int color = HsvMath.hsvToColor((y * 360f) / height, 1f, 1f);
+                        final int offset = y * width;
+                        for (int x = 0; x < width; x++) {
+                            pixels[offset + x] = color;
+                        }
+                    }
+                }
+            };
+        }
+        fillRows(rows, firstRow, width, height, pool, threshold);
+    }
+
+    /**
+     * Fill a width x height buffer with the saturation / value panel of a hue.
+     * Saturation runs from 0 on the left to 1 on the right, value from 1 at the top to 0 at
+     * the bottom, sampled at the pixel centers like the LinearGradients it replaces.
+     *
+     * @param pixels buffer of at least width * height elements, row major.
+     */
+    public static void fillSatVal(int[] pixels, int width, int height, float hue) {
+        fillSatVal(pixels, width, height, hue, null, 0);
+    }
+
+    /**
+     * Same as {@link #fillSatVal(int[], int, int, float)}, the rows are split across the pool when
+     * the buffer has at least threshold pixels. The result is identical to the single threaded one.
+     *
+     * @param pool      pool to fill the rows in, null to always fill them on the calling thread.
+     * @param threshold pixel count from which the pool is used, see {@link #DEFAULT_PARALLEL_THRESHOLD}.
+     */
+    public static void fillSatVal(final int[] pixels, final int width, final int height, float hue,
+                                  ForkJoinPool pool, int threshold) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        final int rgb = HsvMath.hsvToColor(hue, 1f, 1f);
+        final float red = (rgb >> 16) & 0xFF;
+        final float green = (rgb >> 8) & 0xFF;
+        final float blue = rgb & 0xFF;
+        // The fully bright row, each following row is a darker copy of it.
+        final float[] row = new float[width * 3];
+        for (int x = 0; x < width; x++) {
+            final float sat = (x + 0.5f) / width;
+            row[x * 3] = 255f + (red - 255f) * sat;
+            row[x * 3 + 1] = 255f + (green - 255f) * sat;
+            row[x * 3 + 2] = 255f + (blue - 255f) * sat;
+        }
+        fillRows(new Rows() {
+            @Override
+            public void fill(int fromY, int toY) {
+                for (int y = fromY; y < toY; y++) {
+                    final float val = 1f - (y + 0.5f) / height;
+                    final int offset = y * width;
+                    for (int x = 0; x < width; x++) {
+                        final int r = (int) (row[x * 3] * val + 0.5f);
+                        final int g = (int) (row[x * 3 + 1] * val + 0.5f);
+                        final int b = (int) (row[x * 3 + 2] * val + 0.5f);
+                        pixels[offset + x] = 0xFF000000 | (r << 16) | (g << 8) | b;
+                    }
+                }
+            }
+        }, 0, width, height, pool, threshold);
+    }
+
+    /**
+     * Apply a 4x4 ordered dither ahead of an RGB_565 upload, which truncates red and blue to
+     * 5 bits and green to 6. Each channel gets a position dependent offset below one 565 step,
+     * so smooth gradients become a fine pattern instead of visible bands.
+     *
+     * @param pixels buffer of at least width * height opaque colors, row major, modified in place.
+     */
+    public static void ditherTo565(int[] pixels, int width, int height) {
+        for (int y = 0; y < height; y++) {
+            final int bayerRow = (y & 3) * 4;
+            final int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                final int threshold = BAYER_4X4[bayerRow + (x & 3)];
+                final int color = pixels[offset + x];
+                // A 5 bits step is 8, a 6 bits step is 4, the threshold is scaled to each.
+                final int r = Math.min(255, ((color >> 16) & 0xFF) + (threshold >> 1));
+                final int g = Math.min(255, ((color >> 8) & 0xFF) + (threshold >> 2));
+                final int b = Math.min(255, (color & 0xFF) + (threshold >> 1));
+                pixels[offset + x] = (color & 0xFF000000) | (r << 16) | (g << 8) | b;
+            }
+        }
+    }
+
+    /* Every row only depends on its index, so any split of the rows gives the same buffer. */
+    private static void fillRows(Rows rows, int fromY, int width, int height, ForkJoinPool pool, int threshold) {
+        if (pool == null || pool.getParallelism() < 2 || (long) width * height < threshold) {
+            rows.fill(fromY, height);
+            return;
+        }
+        // Enough tasks to balance the cores, each one large enough to be worth a fork.
+        final int minRows = Math.max(1, MIN_TASK_PIXELS / width);
+        final int grain = Math.max(minRows, (height - fromY) / (pool.getParallelism() * 4));
+        pool.invoke(new RowsTask(rows, fromY, height, grain));
+    }
+
+    /**
+     * Fills the rows fromY (inclusive) to toY (exclusive) of a buffer.
+     */
+    private interface Rows {
+        void fill(int fromY, int toY);
+    }
+
+    private static final class RowsTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Rows rows;
+        private final int fromY;
+        private final int toY;
+        private final int grain;
+
+        RowsTask(Rows rows, int fromY, int toY, int grain) {
+            this.rows = rows;
+            this.fromY = fromY;
+            this.toY = toY;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (toY - fromY <= grain) {
+                rows.fill(fromY, toY);
+                return;
+            }
+            final int middle = (fromY + toY) >>> 1;
+            invokeAll(new RowsTask(rows, fromY, middle, grain), new RowsTask(rows, middle, toY, grain));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.iotp.hsvcolorpicker.engine;
+
+import androidx.annotation.ColorInt;
+
+/**
+ * Table driven hex encoding and decoding of colors.
+ * <p>
+ * Encoding writes into a caller owned char[] or StringBuilder, decoding reads any CharSequence
+ * (e.g. an Editable) in place, so neither direction allocates.
+ */
+public final class HexCodec {
+
+    /** Returned by the parse methods when the text is not a hex color. */
+    public static final long INVALID = -1L;
+
+    private static final char[] DIGITS = {
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'
+    };
+    /* Value of each ascii char, -1 if it is not a hex digit. */
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        for (int i = 0; i < VALUES.length; i++) {
+            VALUES[i] = -1;
+        }
+        for (int i = 0; i < 10; i++) {
+            VALUES['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            VALUES['A' + i] = (byte) (10 + i);
+            VALUES['a' + i] = (byte) (10 + i);
+        }
+    }
+
+    private HexCodec() {
+    }
+
+    /**
+     * Write the color as 8 upper case digits, AARRGGBB.
+     *
+     * @return the offset after the last written char.
+     */
+    public static int encodeArgb(@ColorInt int color, char[] out, int offset) {
+        return encode(color, 8, out, offset);
+    }
+
+    /**
+     * Write the color as 6 upper case digits, RRGGBB. The alpha is ignored.
+     *
+     * @return the offset after the last written char.
+     */
+    public static int encodeRgb(@ColorInt int color, char[] out, int offset) {
+        return encode(color, 6, out, offset);
+    }
+
+    public static StringBuilder appendArgb(StringBuilder builder, @ColorInt int color) {
+        return append(builder, color, 8);
+    }
+
+    public static StringBuilder appendRgb(StringBuilder builder, @ColorInt int color) {
+        return append(builder, color, 6);
+    }
+
+    /**
+     * Parse a 3 (RGB), 4 (ARGB), 6 (RRGGBB) or 8 (AARRGGBB) digits hex color,
+     * with or without leading '#'. Colors without alpha digits are opaque.
+     *
+     * @return the color, or {@link #INVALID}.
+     */
+    public static long parse(CharSequence text) {
+        return parse(text, 0, text.length());
+    }
+
+    /**
+     * Same as {@link #parse(CharSequence)} on the chars between start and end.
+     */
+    public static long parse(CharSequence text, int start, int end) {
+        while (start < end && text.charAt(start) == '#') {
+            start++;
+        }
+        final int length = end - start;
+        if (length != 3 && length != 4 && length != 6 && length != 8) {
+            return INVALID;
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            final char c = text.charAt(i);
+            final int digit = c < VALUES.length ? VALUES[c] : -1;
+            if (digit < 0) {
+                return INVALID;
+            }
+            if (length <= 4) {
+                // Short forms, every digit is doubled.
+                value = (value << 8) | (digit << 4) | digit;
+            } else {
+                value = (value << 4) | digit;
+            }
+        }
+        if (length == 3 || length == 6) {
+            value |= 0xFF000000;
+        }
+        return value & 0xFFFFFFFFL;
+    }
+
+    private static int encode(int color, int digits, char[] out, int offset) {
+        for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4) {
+            out[offset++] = DIGITS[(color >>> shift) & 0xF];
+        }
+        return offset;
+    }
+
+    private static StringBuilder append(StringBuilder builder, int color, int digits) {
+        for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4) {
+            builder.append(DIGITS[(color >>> shift) & 0xF]);
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,164 @@
+package com.iotp.hsvcolorpicker.engine;
+
+/**
+ * Pure java HSV/RGB conversion on packed argb ints.
+ * <p>
+ * The math follows Skia's SkHSVToColor / SkRGBToHSV step by step in float precision,
+ * so the results are the same as {@link android.graphics.Color#HSVToColor(int, float[])}
+ * and {@link android.graphics.Color#RGBToHSV(int, int, int, float[])} without the
+ * float[] allocation and the jni call on every touch event.
+ */
+public final class HsvMath {
+
+    private static final float NEARLY_ZERO = 1f / (1 << 12);
+
+    private HsvMath() {
+    }
+
+    /**
+     * Convert hsv components to an opaque color.
+     *
+     * @param hue [0..360[
+     * @param sat [0..1]
+     * @param val [0..1]
+     * @return the packed argb color.
+     */
+    public static int hsvToColor(float hue, float sat, float val) {
+        return hsvToColor(0xFF, hue, sat, val);
+    }
+
+    /**
+     * Convert hsv components to a color with the given alpha.
+     *
+     * @param alpha [0..255]
+     * @param hue   [0..360[, values out of range are treated as 0.
+     * @param sat   [0..1], clamped.
+     * @param val   [0..1], clamped.
+     * @return the packed argb color.
+     */
+    public static int hsvToColor(int alpha, float hue, float sat, float val) {
+        final float s = sat < 0f ? 0f : (sat > 1f ? 1f : sat);
+        final float v = val < 0f ? 0f : (val > 1f ? 1f : val);
+        final int vByte = round(v * 255);
+
+        if (s <= NEARLY_ZERO) {
+            // shade of gray
+            return pack(alpha, vByte, vByte, vByte);
+        }
+        final float hx = (hue < 0 || hue >= 360f) ? 0f : hue / 60;
+        final float w = (float) Math.floor(hx);
+        final float f = hx - w;
+
+        final int p = round((1f - s) * v * 255);
+        final int q = round((1f - (s * f)) * v * 255);
+        final int t = round((1f - (s * (1f - f))) * v * 255);
+
+        switch ((int) w) {
+            case 0:
+                return pack(alpha, vByte, t, p);
+            case 1:
+                return pack(alpha, q, vByte, p);
+            case 2:
+                return pack(alpha, p, vByte, t);
+            case 3:
+                return pack(alpha, p, q, vByte);
+            case 4:
+                return pack(alpha, t, p, vByte);
+            default:
+                return pack(alpha, vByte, p, q);
+        }
+    }
+
+    /**
+     * Same as {@link #hsvToColor(int, float, float, float)} reading the components from an array.
+     *
+     * @param alpha [0..255]
+     * @param hsv   hue, sat and val.
+     * @return the packed argb color.
+     */
+    public static int hsvToColor(int alpha, float[] hsv) {
+        return hsvToColor(alpha, hsv[0], hsv[1], hsv[2]);
+    }
+
+    /**
+     * Convert a color to its hsv components. The alpha channel is ignored.
+     *
+     * @param color  the packed argb color.
+     * @param outHsv caller owned array of at least 3 elements receiving hue, sat and val.
+     */
+    public static void colorToHsv(int color, float[] outHsv) {
+        final int r = (color >> 16) & 0xFF;
+        final int g = (color >> 8) & 0xFF;
+        final int b = color & 0xFF;
+        final int max = Math.max(r, Math.max(g, b));
+        final int delta = max - Math.min(r, Math.min(g, b));
+
+        outHsv[2] = max / 255f;
+        if (delta == 0) {
+            // shade of gray
+            outHsv[0] = 0f;
+            outHsv[1] = 0f;
+            return;
+        }
+        outHsv[1] = (float) delta / max;
+        outHsv[0] = hue(r, g, b, max, delta);
+    }
+
+    /**
+     * @param color the packed argb color.
+     * @return the hue of the color, [0..360[.
+     */
+    public static float hue(int color) {
+        final int r = (color >> 16) & 0xFF;
+        final int g = (color >> 8) & 0xFF;
+        final int b = color & 0xFF;
+        final int max = Math.max(r, Math.max(g, b));
+        final int delta = max - Math.min(r, Math.min(g, b));
+        return delta == 0 ? 0f : hue(r, g, b, max, delta);
+    }
+
+    /**
+     * @param color the packed argb color.
+     * @return the saturation of the color, [0..1].
+     */
+    public static float saturation(int color) {
+        final int r = (color >> 16) & 0xFF;
+        final int g = (color >> 8) & 0xFF;
+        final int b = color & 0xFF;
+        final int max = Math.max(r, Math.max(g, b));
+        final int delta = max - Math.min(r, Math.min(g, b));
+        return delta == 0 ? 0f : (float) delta / max;
+    }
+
+    /**
+     * @param color the packed argb color.
+     * @return the value of the color, [0..1].
+     */
+    public static float value(int color) {
+        return Math.max((color >> 16) & 0xFF, Math.max((color >> 8) & 0xFF, color & 0xFF)) / 255f;
+    }
+
+    private static float hue(int r, int g, int b, int max, int delta) {
+        float h;
+        if (r == max) {
+            h = (float) (g - b) / delta;
+        } else if (g == max) {
+            h = 2f + (float) (b - r) / delta;
+        } else {
+            h = 4f + (float) (r - g) / delta;
+        }
+        h *= 60;
+        if (h < 0) {
+            h += 360f;
+        }
+        return h;
+    }
+
+    private static int round(float x) {
+        return (int) Math.floor(x + 0.5f);
+    }
+
+    private static int pack(int alpha, int r, int g, int b) {
+        return (alpha << 24) | (r << 16) | (g << 8) | b;
+    }
+}
@@ -0,0 +1,69 @@
+package com.iotp.hsvcolorpicker.engine;
+
+/**
+ * Maps the color components to positions on the picker panels and back.
+ * <p>
+ * Positions are in the coordinates of the view, the panel being described by its left or top
+ * edge and its size. Positions outside of the panel map to the nearest edge value, so a drag
+ * can leave the panel.
+ */
+public final class PickerGeometry {
+
+    private PickerGeometry() {
+    }
+
+    /**
+     * Saturation runs from 0 on the left edge of the sat/val panel to 1 on the right edge.
+     */
+    public static float satToX(float sat, float left, float width) {
+        return sat * width + left;
+    }
+
+    /**
+     * Value runs from 1 on the top edge of the sat/val panel to 0 on the bottom edge.
+     */
+    public static float valToY(float val, float top, float height) {
+        return (1f - val) * height + top;
+    }
+
+    public static float xToSat(float x, float left, float width) {
+        return clamp(x - left, width) / width;
+    }
+
+    public static float yToVal(float y, float top, float height) {
+        return 1f - clamp(y - top, height) / height;
+    }
+
+    /**
+     * P(x) = hue * width / 360, from the left edge of the view.
+     */
+    public static float hueToX(float hue, float width) {
+        return hue * width / 360f;
+    }
+
+    /**
+     * hue = P(x) * 360 / width, clamped to [0, 360].
+     */
+    public static float xToHue(float x, float width) {
+        // Clamped after the division, x * 360 / x may round above 360.
+        return clamp(x * 360f / width, 360f);
+    }
+
+    /**
+     * Alpha runs from 0 on the left edge of the alpha panel to 255 on the right edge.
+     */
+    public static float alphaToX(int alpha, float left, float width) {
+        return alpha * width / ColorUtils.MAX_ALPHA + left;
+    }
+
+    public static int xToAlpha(float x, float left, float width) {
+        return (int) (clamp(x - left, width) / width * ColorUtils.MAX_ALPHA);
+    }
+
+    private static float clamp(float offset, float size) {
+        if (offset < 0f) {
+            return 0f;
+        }
+        return offset > size ? size : offset;
+    }
+}
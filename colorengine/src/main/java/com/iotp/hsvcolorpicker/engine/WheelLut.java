@@ -0,0 +1,157 @@
+package com.iotp.hsvcolorpicker.engine;
+
+/**
+ * Polar lookup tables of a square hue/saturation wheel: the hue (angle) and the saturation
+ * (distance to the center over the radius) of every pixel.
+ * <p>
+ * atan2 and sqrt run once per pixel of a quadrant when the tables are built, the three other
+ * quadrants are mirrored. Filling the wheel and mapping a touch to a color are then plain table
+ * reads, so a wheel drag costs the same as a drag on the square sat/val panel.
+ * <p>
+ * The hue grows counterclockwise from 0 on the right of the center, like the usual color wheels.
+ * Both tables are stored as 16 bits fixed point, 4 bytes per pixel in total. Immutable once built,
+ * safe to share between threads.
+ */
+public final class WheelLut {
+
+    /* 65536 steps for 360 degrees. */
+    private static final float HUE_TO_FIXED = 65536f / 360f;
+    private static final float FIXED_TO_HUE = 360f / 65536f;
+    /* 1 is the edge of the wheel, the corners of the square are at sqrt(2). */
+    private static final float SAT_TO_FIXED = 32768f;
+    private static final float FIXED_TO_SAT = 1f / 32768f;
+
+    /* The tables of the last size asked, most apps show a single wheel size. */
+    private static volatile WheelLut last;
+
+    private final int size;
+    private final float radius;
+    private final char[] hues;
+    private final char[] sats;
+
+    private WheelLut(int size) {
+        this.size = size;
+        this.radius = size / 2f;
+        this.hues = new char[size * size];
+        this.sats = new char[size * size];
+    }
+
+    /**
+     * @return the tables of a size x size wheel, shared with the previous caller of the same size.
+     */
+    public static WheelLut forSize(int size) {
+        WheelLut lut = last;
+        if (lut == null || lut.size != size) {
+            lut = create(size);
+            last = lut;
+        }
+        return lut;
+    }
+
+    /**
+     * Build the tables of a size x size wheel.
+     */
+    public static WheelLut create(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive: " + size);
+        }
+        final WheelLut lut = new WheelLut(size);
+        final float radius = lut.radius;
+        final int half = (size + 1) / 2;
+        // Top left quadrant, pixel centers, y up.
+        for (int y = 0; y < half; y++) {
+            final float dy = radius - (y + 0.5f);
+            final int mirrorY = size - 1 - y;
+            for (int x = 0; x < half; x++) {
+                final float dx = (x + 0.5f) - radius;
+                final float angle = (float) Math.toDegrees(Math.atan2(dy, dx));
+                final char sat = encodeSat((float) Math.sqrt(dx * dx + dy * dy) / radius);
+                final int mirrorX = size - 1 - x;
+                lut.set(x, y, angle, sat);
+                lut.set(mirrorX, y, 180f - angle, sat);
+                lut.set(x, mirrorY, 360f - angle, sat);
+                lut.set(mirrorX, mirrorY, angle + 180f, sat);
+            }
+        }
+        return lut;
+    }
+
+    private void set(int x, int y, float hue, char sat) {
+        final int i = y * size + x;
+        // 360 wraps to 0.
+        hues[i] = (char) ((int) (hue * HUE_TO_FIXED + 0.5f) & 0xFFFF);
+        sats[i] = sat;
+    }
+
+    private static char encodeSat(float sat) {
+        return (char) Math.min((int) (sat * SAT_TO_FIXED + 0.5f), 0xFFFF);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the hue of the pixel under x, y, in the coordinates of the wheel. Points outside of
+     * the square take the hue of the nearest edge pixel.
+     */
+    public float hueAt(float x, float y) {
+        return hues[index(x, y)] * FIXED_TO_HUE;
+    }
+
+    /**
+     * @return the saturation of the pixel under x, y, clamped to 1 outside of the wheel.
+     */
+    public float satAt(float x, float y) {
+        return Math.min(sats[index(x, y)] * FIXED_TO_SAT, 1f);
+    }
+
+    private int index(float x, float y) {
+        final int px = clamp((int) x, size - 1);
+        final int py = clamp((int) y, size - 1);
+        return py * size + px;
+    }
+
+    private static int clamp(int value, int max) {
+        if (value < 0) {
+            return 0;
+        }
+        return value > max ? max : value;
+    }
+
+    /**
+     * x of the point of the given hue and saturation, in the coordinates of the wheel.
+     */
+    public static float hueSatToX(float hue, float sat, float size) {
+        return size / 2f + (float) Math.cos(Math.toRadians(hue)) * sat * size / 2f;
+    }
+
+    /**
+     * y of the point of the given hue and saturation, in the coordinates of the wheel.
+     */
+    public static float hueSatToY(float hue, float sat, float size) {
+        return size / 2f - (float) Math.sin(Math.toRadians(hue)) * sat * size / 2f;
+    }
+
+    /**
+     * Fill a size x size buffer with the wheel at full value. Pixels outside of the wheel are
+     * transparent, the pixels crossed by the edge are partly transparent.
+     *
+     * @param pixels buffer of at least size * size elements, row major.
+     */
+    public void fill(int[] pixels) {
+        final int count = size * size;
+        for (int i = 0; i < count; i++) {
+            final float sat = sats[i] * FIXED_TO_SAT;
+            // Coverage of the pixel by the disc, 0.5 when its center is on the edge.
+            final float coverage = (1f - sat) * radius + 0.5f;
+            if (coverage <= 0f) {
+                pixels[i] = 0;
+                continue;
+            }
+            final int alpha = coverage >= 1f ? 0xFF : (int) (coverage * 255f);
+            final int color = HsvMath.hsvToColor(hues[i] * FIXED_TO_HUE, Math.min(sat, 1f), 1f);
+            pixels[i] = (alpha << 24) | (color & 0x00FFFFFF);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.iotp.hsvcolorpicker.engine
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertSame
+import org.junit.Test
+
+class ColorPickerStateTest {
+
+    private val state = ColorPickerState()
+    private val changes = mutableListOf<Int>()
+    private var lastSource: Any? = null
+
+    init {
+        state.addObserver { _, changed, source ->
+            changes.add(changed)
+            lastSource = source
+        }
+    }
+
+    @Test
+    fun notifiesChangedComponentsOnly() {
+        state.setSatVal(1f, 1f, this)
+        state.setHue(120f, null)
+        state.setAlpha(0x80, null)
+
+        assertEquals(
+            listOf(
+                ColorPickerState.CHANGED_SAT or ColorPickerState.CHANGED_VAL,
+                ColorPickerState.CHANGED_HUE,
+                ColorPickerState.CHANGED_ALPHA
+            ), changes
+        )
+        assertEquals(0x8000FF00.toInt(), state.color)
+    }
+
+    @Test
+    fun sameValue_noNotification() {
+        state.setHue(200f, this)
+        val version = state.version
+        state.setHue(200f, this)
+        state.setColor(state.color, this)
+
+        assertEquals(1, changes.size)
+        assertSame(this, lastSource)
+        assertEquals(version, state.version)
+    }
+
+    @Test
+    fun versions() {
+        state.setHue(10f, null)
+        state.setSatVal(0.5f, 0.5f, null)
+
+        assertEquals(1, state.hueVersion)
+        assertEquals(2, state.satVersion)
+        assertEquals(2, state.valVersion)
+        assertEquals(0, state.alphaVersion)
+        assertEquals(2, state.version)
+    }
+
+    @Test
+    fun setColor_keepsHueOfGrays() {
+        state.set(200f, 0.8f, 0.8f, 0xFF, null)
+        state.setColor(0xFF808080.toInt(), null)
+        assertEquals(200f, state.hue)
+        assertEquals(0f, state.sat)
+
+        state.set(200f, 0.8f, 0.8f, 0xFF, null)
+        state.setColor(0xFF000000.toInt(), null)
+        assertEquals(200f, state.hue)
+        assertEquals(0.8f, state.sat)
+        assertEquals(0f, state.`val`)
+    }
+}
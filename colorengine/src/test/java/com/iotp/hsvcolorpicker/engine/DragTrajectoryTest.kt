@@ -0,0 +1,34 @@
+package com.iotp.hsvcolorpicker.engine
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class DragTrajectoryTest {
+
+    @Test
+    fun velocity_linearDrag() {
+        val trajectory = DragTrajectory()
+        // 2 units per ms along x, -0.5 along y, sampled every 4ms.
+        for (i in 0..20) {
+            trajectory.add(1000L + i * 4, i * 8f, 100f - i * 2f)
+        }
+        assertEquals(2000f, trajectory.velocityX, 0.01f)
+        assertEquals(-500f, trajectory.velocityY, 0.01f)
+        assertEquals(160f + 2000f * 0.016f, trajectory.predictX(16), 0.01f)
+    }
+
+    @Test
+    fun keepsLatestSamples() {
+        val trajectory = DragTrajectory()
+        for (i in 0 until 40) {
+            trajectory.add(i.toLong(), i.toFloat(), 0f)
+        }
+        assertEquals(32, trajectory.sampleCount)
+        assertEquals(8f, trajectory.getSampleX(0))
+        assertEquals(39f, trajectory.x)
+
+        trajectory.reset()
+        assertEquals(0, trajectory.sampleCount)
+        assertEquals(0f, trajectory.velocityX)
+    }
+}
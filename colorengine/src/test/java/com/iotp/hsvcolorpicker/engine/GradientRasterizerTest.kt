@@ -0,0 +1,95 @@
+package com.iotp.hsvcolorpicker.engine
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Assert.assertArrayEquals
+import org.junit.Test
+import java.util.concurrent.ForkJoinPool
+
+class GradientRasterizerTest {
+
+    @Test
+    fun fillSatVal_corners() {
+        val size = 256
+        val pixels = IntArray(size * size)
+        GradientRasterizer.fillSatVal(pixels, size, size, 240f)
+
+        // Top left is almost white, top right almost the pure hue, the bottom row almost black.
+        assertEquals(0xFFFFFFFF.toInt(), pixels[0] or 0x010101)
+        val topRight = pixels[size - 1]
+        assertTrue((topRight shr 16 and 0xFF) <= 1)
+        assertTrue((topRight shr 8 and 0xFF) <= 1)
+        assertTrue((topRight and 0xFF) >= 254)
+        for (x in 0 until size) {
+            val color = pixels[(size - 1) * size + x]
+            assertTrue((color shr 16 and 0xFF) <= 1 && (color shr 8 and 0xFF) <= 1 && (color and 0xFF) <= 1)
+        }
+    }
+
+    @Test
+    fun fillSatVal_opaqueAndMonotonic() {
+        val width = 64
+        val height = 48
+        val pixels = IntArray(width * height)
+        GradientRasterizer.fillSatVal(pixels, width, height, 30f)
+        for (y in 0 until height) {
+            for (x in 0 until width) {
+                val color = pixels[y * width + x]
+                assertEquals(0xFF, color ushr 24)
+                if (y > 0) {
+                    // Darker going down.
+                    assertTrue((color and 0xFF) <= (pixels[(y - 1) * width + x] and 0xFF))
+                }
+            }
+        }
+    }
+
+    @Test
+    fun ditherTo565_averagesToTheSourceColor() {
+        val size = 4
+        val pixels = IntArray(size * size) { 0xFF0B0B0B.toInt() }
+        GradientRasterizer.ditherTo565(pixels, size, size)
+
+        // After the 565 truncation, the 4x4 cell averages back close to the source value.
+        var red = 0
+        var green = 0
+        for (color in pixels) {
+            assertEquals(0xFF, color ushr 24)
+            red += ((color shr 16 and 0xFF) shr 3) shl 3
+            green += ((color shr 8 and 0xFF) shr 2) shl 2
+        }
+        assertEquals(0x0B.toFloat(), red / 16f, 1f)
+        assertEquals(0x0B.toFloat(), green / 16f, 1f)
+    }
+
+    @Test
+    fun ditherTo565_clampsWhite() {
+        val pixels = IntArray(16) { 0xFFFFFFFF.toInt() }
+        GradientRasterizer.ditherTo565(pixels, 4, 4)
+        for (color in pixels) {
+            assertEquals(0xFFFFFFFF.toInt(), color)
+        }
+    }
+
+    @Test
+    fun parallel_identicalToSingleThreaded() {
+        val pool = ForkJoinPool(4)
+        try {
+            // Odd sizes, so the row split does not fall on round numbers, and both hue orientations.
+            for ((width, height) in listOf(1 to 1, 7 to 3, 513 to 1001, 1001 to 17, 2048 to 1536)) {
+                val expected = IntArray(width * height)
+                val actual = IntArray(width * height)
+
+                GradientRasterizer.fillSatVal(expected, width, height, 200f)
+                GradientRasterizer.fillSatVal(actual, width, height, 200f, pool, 0)
+                assertArrayEquals(expected, actual)
+
+                GradientRasterizer.fillHue(expected, width, height)
+                GradientRasterizer.fillHue(actual, width, height, pool, 0)
+                assertArrayEquals(expected, actual)
+            }
+        } finally {
+            pool.shutdown()
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.iotp.hsvcolorpicker.engine
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class HexCodecTest {
+
+    @Test
+    fun encode() {
+        val chars = CharArray(8)
+        assertEquals(8, HexCodec.encodeArgb(0x80FF0A01.toInt(), chars, 0))
+        assertEquals("80FF0A01", String(chars))
+        assertEquals("#FF0A01", HexCodec.appendRgb(StringBuilder("#"), 0x80FF0A01.toInt()).toString())
+    }
+
+    @Test
+    fun parse() {
+        assertEquals(0xFFAABBCCL, HexCodec.parse("#AABBCC"))
+        assertEquals(0xFFAABBCCL, HexCodec.parse("abc"))
+        assertEquals(0x11AABBCCL, HexCodec.parse("#1abc"))
+        assertEquals(0xFF0A0B0CL, HexCodec.parse("0a0B0c"))
+        assertEquals(0xFFFFFFFFL, HexCodec.parse("#FFFFFFFF"))
+        assertEquals(0L, HexCodec.parse("00000000"))
+    }
+
+    @Test
+    fun parse_invalid() {
+        assertEquals(HexCodec.INVALID, HexCodec.parse(""))
+        assertEquals(HexCodec.INVALID, HexCodec.parse("#"))
+        assertEquals(HexCodec.INVALID, HexCodec.parse("12345"))
+        assertEquals(HexCodec.INVALID, HexCodec.parse("#GG0000"))
+        assertEquals(HexCodec.INVALID, HexCodec.parse("12٣456"))
+    }
+
+    @Test
+    fun roundTrip() {
+        val chars = CharArray(8)
+        for (color in intArrayOf(0, -1, 0x12345678, 0x7F000000, 0x80000000.toInt())) {
+            HexCodec.encodeArgb(color, chars, 0)
+            assertEquals(color.toLong() and 0xFFFFFFFFL, HexCodec.parse(String(chars)))
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.iotp.hsvcolorpicker.engine
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/**
+ * Checks [HsvMath] against values produced by the framework Color.HSVToColor / Color.RGBToHSV.
+ */
+class HsvMathTest {
+
+    @Test
+    fun hsvToColor_primaries() {
+        assertEquals(0xFFFF0000.toInt(), HsvMath.hsvToColor(0f, 1f, 1f))
+        assertEquals(0xFFFF0000.toInt(), HsvMath.hsvToColor(360f, 1f, 1f))
+        assertEquals(0xFF00FF00.toInt(), HsvMath.hsvToColor(120f, 1f, 1f))
+        assertEquals(0xFF0000FF.toInt(), HsvMath.hsvToColor(240f, 1f, 1f))
+        assertEquals(0x80000080.toInt(), HsvMath.hsvToColor(0x80, 240f, 1f, 0.5f))
+        assertEquals(0xFF808080.toInt(), HsvMath.hsvToColor(42f, 0f, 0.5f))
+    }
+
+    @Test
+    fun colorToHsv_gray() {
+        val hsv = FloatArray(3)
+        HsvMath.colorToHsv(0xFF404040.toInt(), hsv)
+        assertEquals(0f, hsv[0])
+        assertEquals(0f, hsv[1])
+        assertEquals(0x40 / 255f, hsv[2])
+    }
+
+    @Test
+    fun roundTrip_everyRgbColor() {
+        val hsv = FloatArray(3)
+        for (rgb in 0 until 0x1000000) {
+            HsvMath.colorToHsv(rgb, hsv)
+            assertEquals(rgb or 0xFF000000.toInt(), HsvMath.hsvToColor(hsv[0], hsv[1], hsv[2]))
+            assertEquals(hsv[0], HsvMath.hue(rgb))
+            assertEquals(hsv[1], HsvMath.saturation(rgb))
+            assertEquals(hsv[2], HsvMath.value(rgb))
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.iotp.hsvcolorpicker.engine
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.Random
+
+class PickerGeometryTest {
+
+    @Test
+    fun satVal_edges() {
+        assertEquals(0f, PickerGeometry.xToSat(10f, 10f, 200f))
+        assertEquals(1f, PickerGeometry.xToSat(210f, 10f, 200f))
+        assertEquals(1f, PickerGeometry.yToVal(20f, 20f, 100f))
+        assertEquals(0f, PickerGeometry.yToVal(120f, 20f, 100f))
+        // Outside of the panel, clamped to the nearest edge.
+        assertEquals(0f, PickerGeometry.xToSat(-50f, 10f, 200f))
+        assertEquals(1f, PickerGeometry.xToSat(500f, 10f, 200f))
+        assertEquals(1f, PickerGeometry.yToVal(-5f, 20f, 100f))
+        assertEquals(0f, PickerGeometry.yToVal(1000f, 20f, 100f))
+    }
+
+    @Test
+    fun hue_edges() {
+        assertEquals(0f, PickerGeometry.xToHue(-1f, 300f))
+        assertEquals(180f, PickerGeometry.xToHue(150f, 300f))
+        assertEquals(360f, PickerGeometry.xToHue(301f, 300f))
+        assertEquals(150f, PickerGeometry.hueToX(180f, 300f))
+    }
+
+    @Test
+    fun alpha_followsTheThumb() {
+        // The alpha under the thumb is the alpha the thumb is drawn for, padding included.
+        for (alpha in 0..255) {
+            val x = PickerGeometry.alphaToX(alpha, 24f, 255f)
+            assertEquals(alpha, PickerGeometry.xToAlpha(x, 24f, 255f))
+        }
+        assertEquals(0, PickerGeometry.xToAlpha(0f, 24f, 255f))
+        assertEquals(255, PickerGeometry.xToAlpha(1000f, 24f, 255f))
+    }
+
+    @Test
+    fun fuzz_roundTripsAndRanges() {
+        val random = Random(42)
+        repeat(100_000) {
+            val left = random.nextFloat() * 100f
+            val size = 1f + random.nextFloat() * 2000f
+            val sat = random.nextFloat()
+            val hue = random.nextFloat() * 360f
+
+            assertEquals(sat, PickerGeometry.xToSat(PickerGeometry.satToX(sat, left, size), left, size), 1e-3f)
+            assertEquals(sat, PickerGeometry.yToVal(PickerGeometry.valToY(sat, left, size), left, size), 1e-3f)
+            assertEquals(hue, PickerGeometry.xToHue(PickerGeometry.hueToX(hue, size), size), 0.1f)
+
+            // Any position, including far outside of the panel, maps into the valid range.
+            val x = (random.nextFloat() - 0.5f) * 10_000f
+            val s = PickerGeometry.xToSat(x, left, size)
+            val h = PickerGeometry.xToHue(x, size)
+            val a = PickerGeometry.xToAlpha(x, left, size)
+            assertTrue(s in 0f..1f)
+            assertTrue(h in 0f..360f)
+            assertTrue(a in 0..255)
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.iotp.hsvcolorpicker.engine
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import kotlin.math.abs
+import kotlin.math.atan2
+import kotlin.math.min
+import kotlin.math.sqrt
+
+class WheelLutTest {
+
+    @Test
+    fun tables_matchPolarCoordinates() {
+        for (size in listOf(1, 2, 7, 64, 101)) {
+            val lut = WheelLut.create(size)
+            val radius = size / 2.0
+            for (y in 0 until size) {
+                for (x in 0 until size) {
+                    val dx = x + 0.5 - radius
+                    val dy = radius - (y + 0.5)
+                    val hue = (Math.toDegrees(atan2(dy, dx)) + 360.0) % 360.0
+                    val sat = min(sqrt(dx * dx + dy * dy) / radius, 1.0)
+                    // The center pixel of odd sizes has no hue.
+                    if (sat > 0.0) {
+                        assertTrue(
+                            "hue of $x,$y in $size",
+                            hueDistance(hue, lut.hueAt(x.toFloat(), y.toFloat()).toDouble()) < 0.01
+                        )
+                    }
+                    assertEquals("sat of $x,$y in $size", sat, lut.satAt(x.toFloat(), y.toFloat()).toDouble(), 1e-4)
+                }
+            }
+        }
+    }
+
+    @Test
+    fun outsideTheSquare_takesTheNearestEdge() {
+        val lut = WheelLut.create(100)
+        assertEquals(lut.hueAt(99f, 50f), lut.hueAt(500f, 50f))
+        assertEquals(1f, lut.satAt(-20f, -20f))
+    }
+
+    @Test
+    fun thumbPosition_mapsBackToTheSameColor() {
+        val size = 200
+        val lut = WheelLut.create(size)
+        for (hue in 0 until 360 step 15) {
+            val x = WheelLut.hueSatToX(hue.toFloat(), 0.8f, size.toFloat())
+            val y = WheelLut.hueSatToY(hue.toFloat(), 0.8f, size.toFloat())
+            assertTrue("hue $hue", hueDistance(hue.toDouble(), lut.hueAt(x, y).toDouble()) < 1.0)
+            assertEquals("hue $hue", 0.8, lut.satAt(x, y).toDouble(), 0.01)
+        }
+    }
+
+    @Test
+    fun fill_isTransparentOutsideOfTheWheel() {
+        val size = 64
+        val pixels = IntArray(size * size)
+        WheelLut.create(size).fill(pixels)
+
+        assertEquals(0, pixels[0])
+        assertEquals(0, pixels[size * size - 1])
+        // Near the center, nearly white and opaque.
+        val center = pixels[size / 2 * size + size / 2]
+        assertEquals(0xFF, center ushr 24)
+        assertTrue(center and 0xFF > 0xF0)
+        // Nearly pure red right of the center, close to the edge.
+        val red = pixels[size / 2 * size + size - 3]
+        assertEquals(0xFFFF, red ushr 16)
+        assertTrue((red shr 8 and 0xFF) < 0x20 && (red and 0xFF) < 0x20)
+    }
+
+    @Test
+    fun forSize_sharesTheTables() {
+        assertSame(WheelLut.forSize(48), WheelLut.forSize(48))
+    }
+
+    private fun hueDistance(a: Double, b: Double): Double {
+        val d = abs(a - b) % 360.0
+        return min(d, 360.0 - d)
+    }
+}